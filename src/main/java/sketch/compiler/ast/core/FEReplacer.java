@@ -477,11 +477,18 @@ public class FEReplacer implements FEVisitor
         assert prog != null : "FEReplacer.visitProgram: argument null!";
         nres = new NameResolver(prog);
         List<Package> newStreams = new ArrayList<Package>();
+        boolean changed = false;
         for (Package ssOrig : prog.getPackages()) {
-            newStreams.add((Package) ssOrig.accept(this));
+            Package ss = (Package) ssOrig.accept(this);
+            if (ss != ssOrig) {
+                changed = true;
+            }
+            newStreams.add(ss);
         }
 
-
+        if (!changed) {
+            return prog;
+        }
         return prog.creator().streams(newStreams).create();
     }
 
@@ -813,10 +820,13 @@ public class FEReplacer implements FEVisitor
             Function oldFunc = (Function)iter.next();
             Function newFunc = (Function)oldFunc.accept(this);
             if (oldFunc != newFunc) changed = true;
-            // if(oldFunc != null)++nonNull;
-            if(newFunc!=null) newFuncs.add(newFunc);
+            if (newFunc != null) {
+                ++nonNull;
+                newFuncs.add(newFunc);
+            }
         }
 
+        // a pass may have added functions of its own to newFuncs
         if(newFuncs.size() != nonNull){
             changed = true;
         }
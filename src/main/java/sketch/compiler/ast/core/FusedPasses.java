@@ -0,0 +1,96 @@
+package sketch.compiler.ast.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+import sketch.compiler.ast.core.typs.StructDef;
+import sketch.compiler.passes.annotations.CompilerPassDeps;
+
+/**
+ * Runs several function-local passes (see {@link CompilerPassDeps#functionLocal()}) in a
+ * single walk over the program: each global, struct and function goes through all the
+ * passes in turn before the next one is looked at. That gives the same program as
+ * running them one after the other, since none of them carries anything from one
+ * function to the next, but rebuilds the Program and Package only once.
+ * <p>
+ * The passes share one NameResolver, built from the input program. They must not
+ * override visitProgram or visitPackage, as this class does that part of the walk for
+ * them.
+ */
+@CompilerPassDeps(runsBefore = {}, runsAfter = {}, functionLocal = true)
+public class FusedPasses extends FEReplacer {
+    protected FEReplacer[] passes;
+
+    public FusedPasses(FEReplacer... passes) {
+        this.passes = passes;
+        for (FEReplacer p : passes) {
+            assert isFusable(p) : p.getClass() + " can't be fused";
+        }
+    }
+
+    /** @return whether a pass may be run as part of a FusedPasses */
+    public static boolean isFusable(FEVisitor pass) {
+        if (!(pass instanceof FEReplacer)) {
+            return false;
+        }
+        CompilerPassDeps deps = pass.getClass().getAnnotation(CompilerPassDeps.class);
+        if (deps == null || !deps.functionLocal()) {
+            return false;
+        }
+        try {
+            return pass.getClass().getMethod("visitProgram", Program.class)
+                    .getDeclaringClass() == FEReplacer.class &&
+                    pass.getClass().getMethod("visitPackage", Package.class)
+                            .getDeclaringClass() == FEReplacer.class;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    public List<FEReplacer> getPasses() {
+        return Arrays.asList(passes);
+    }
+
+    @Override
+    public Object visitPackage(Package spec) {
+        for (FEReplacer p : passes) {
+            p.nres = nres;
+        }
+        return super.visitPackage(spec);
+    }
+
+    @Override
+    public Object visitFieldDecl(FieldDecl field) {
+        for (FEReplacer p : passes) {
+            field = (FieldDecl) field.accept(p);
+            if (field == null) {
+                return null;
+            }
+        }
+        return field;
+    }
+
+    @Override
+    public Object visitStructDef(StructDef ts) {
+        for (FEReplacer p : passes) {
+            p.nstructsInPkg = nstructsInPkg;
+            ts = (StructDef) ts.accept(p);
+            p.nstructsInPkg = -1;
+            if (ts == null) {
+                return null;
+            }
+        }
+        return ts;
+    }
+
+    @Override
+    public Object visitFunction(Function func) {
+        for (FEReplacer p : passes) {
+            func = (Function) func.accept(p);
+            if (func == null) {
+                return null;
+            }
+        }
+        return func;
+    }
+}
@@ -20,20 +20,34 @@ import sketch.util.exceptions.UnrecognizedVariableException;
  * will be unique and help distinguish the same simple name in different packages.
  */
 public class NameResolver {
-    final Map<String, String> pkgForStruct = new HashMap<String, String>();
-    final Map<String, String> pkgForFun = new HashMap<String, String>();
-    final Map<String, String> pkgForVar = new HashMap<String, String>();
+    Map<String, String> pkgForStruct = new HashMap<String, String>();
+    Map<String, String> pkgForFun = new HashMap<String, String>();
+    Map<String, String> pkgForVar = new HashMap<String, String>();
 
-    final Map<String, StructDef> structMap = new HashMap<String, StructDef>();
+    Map<String, StructDef> structMap = new HashMap<String, StructDef>();
     // ADT
-    final Map<String, String> structParent = new HashMap<String, String>();
-    final Map<String, List<String>> structChildren = new HashMap<String, List<String>>();
+    Map<String, String> structParent = new HashMap<String, String>();
+    Map<String, List<String>> structChildren = new HashMap<String, List<String>>();
 
-    final Map<String, Function> funMap = new HashMap<String, Function>();
-    final Map<String, FieldDecl> varMap = new HashMap<String, FieldDecl>();
+    Map<String, Function> funMap = new HashMap<String, Function>();
+    Map<String, FieldDecl> varMap = new HashMap<String, FieldDecl>();
     Stack<Set<String>> tempStructNames = new Stack<Set<String>>();
     Package pkg;
 
+    /** number of things registered with this resolver since it was built */
+    int modCount = 0;
+
+    /** the maps above belong to a Snapshot, and must be copied before changing them */
+    private boolean borrowed = false;
+
+    /**
+     * The maps last built by NameResolver(Program), and what they were built from.
+     * Consecutive passes mostly see the same program, or one that only differs in
+     * function bodies, so the next resolver can borrow these maps or patch a copy of
+     * funMap instead of registering everything again.
+     */
+    private static Snapshot last = null;
+
     public void pushTempTypes(List<String> tempTypes) {
         tempStructNames.push(new HashSet(tempTypes));
     }
@@ -54,6 +68,11 @@ public class NameResolver {
     public Package curPkg() {
         return pkg;
     }
+
+    /** @return a number that changes whenever something is registered */
+    public int modCount() {
+        return modCount;
+    }
     public Collection<String> structNamesList() {
         return structMap.keySet();
     }
@@ -62,7 +81,46 @@ public class NameResolver {
 
     }
     public NameResolver(Program p) {
-        populate(p);
+        Snapshot prev;
+        synchronized (NameResolver.class) {
+            prev = last;
+        }
+        Snapshot snap = prev == null ? null : prev.reuseFor(p);
+        if (snap == null) {
+            populate(p);
+            snap = new Snapshot(p, this);
+        } else {
+            snap.lendTo(this);
+            List<Package> pkgs = p.getPackages();
+            pkg = pkgs.isEmpty() ? null : pkgs.get(pkgs.size() - 1);
+        }
+        borrowed = true;
+        if (snap != prev) {
+            synchronized (NameResolver.class) {
+                last = snap;
+            }
+        }
+    }
+
+    /** Makes the maps this resolver's own, so that it can register things. */
+    private void own() {
+        ++modCount;
+        if (!borrowed) {
+            return;
+        }
+        pkgForStruct = new HashMap<String, String>(pkgForStruct);
+        pkgForFun = new HashMap<String, String>(pkgForFun);
+        pkgForVar = new HashMap<String, String>(pkgForVar);
+        structMap = new HashMap<String, StructDef>(structMap);
+        structParent = new HashMap<String, String>(structParent);
+        Map<String, List<String>> children = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> e : structChildren.entrySet()) {
+            children.put(e.getKey(), new ArrayList<String>(e.getValue()));
+        }
+        structChildren = children;
+        funMap = new HashMap<String, Function>(funMap);
+        varMap = new HashMap<String, FieldDecl>(varMap);
+        borrowed = false;
     }
     public void setPackage(Package pkg) {
         this.pkg = pkg;
@@ -88,6 +146,7 @@ public class NameResolver {
 
     // ADT
     public void registerStructParent(String structName, String parentName) {
+        own();
         structName = compound(pkg.getName(), structName);
         if (parentName != null) {
             parentName = compound(pkg.getName(), parentName);
@@ -108,21 +167,25 @@ public class NameResolver {
 
 
     public void registerStruct(StructDef ts) {
+        own();
         registerStuff(pkgForStruct, structMap, ts, ts.getName());
         registerStructParent(ts.getName(), ts.getParentName());
     }
 
     public void registerFun(Function f) {
+        own();
         registerStuff(pkgForFun, funMap, f, f.getName());
     }
 
     public void reRegisterFun(Function f) {
+        own();
         String name = f.getName();
         assert pkgForFun.get(name).equals(pkg.getName());
         funMap.put(compound(pkg.getName(), name), f);
     }
 
     public void registerVar(FieldDecl fd) {
+        own();
         for (int i = 0; i < fd.getNumFields(); ++i) {
             registerStuff(pkgForVar, varMap, fd, fd.getName(i));
         }
@@ -273,4 +336,125 @@ public class NameResolver {
         }
     }
 
+    private static class Snapshot {
+        final String[] pkgNames;
+        final Object[][] structs;
+        final Object[][] funcs;
+        final Object[][] vars;
+
+        final Map<String, String> pkgForStruct;
+        final Map<String, String> pkgForFun;
+        final Map<String, String> pkgForVar;
+        final Map<String, StructDef> structMap;
+        final Map<String, String> structParent;
+        final Map<String, List<String>> structChildren;
+        final Map<String, Function> funMap;
+        final Map<String, FieldDecl> varMap;
+
+        /** Takes over the maps nr built for p. */
+        Snapshot(Program p, NameResolver nr) {
+            this(p, nr.funMap, nr);
+        }
+
+        Snapshot(Program p, Map<String, Function> funMap, NameResolver nr) {
+            List<Package> pkgs = p.getPackages();
+            pkgNames = new String[pkgs.size()];
+            structs = new Object[pkgs.size()][];
+            funcs = new Object[pkgs.size()][];
+            vars = new Object[pkgs.size()][];
+            for (int i = 0; i < pkgNames.length; i++) {
+                Package pk = pkgs.get(i);
+                pkgNames[i] = pk.getName();
+                structs[i] = pk.getStructs().toArray();
+                funcs[i] = pk.getFuncs().toArray();
+                vars[i] = pk.getVars().toArray();
+            }
+            pkgForStruct = nr.pkgForStruct;
+            pkgForFun = nr.pkgForFun;
+            pkgForVar = nr.pkgForVar;
+            structMap = nr.structMap;
+            structParent = nr.structParent;
+            structChildren = nr.structChildren;
+            this.funMap = funMap;
+            varMap = nr.varMap;
+        }
+
+        void lendTo(NameResolver nr) {
+            nr.pkgForStruct = pkgForStruct;
+            nr.pkgForFun = pkgForFun;
+            nr.pkgForVar = pkgForVar;
+            nr.structMap = structMap;
+            nr.structParent = structParent;
+            nr.structChildren = structChildren;
+            nr.funMap = funMap;
+            nr.varMap = varMap;
+        }
+
+        /**
+         * @return a snapshot describing p: this one, one with funMap patched for
+         *         functions that were rewritten but kept their names, or null if p
+         *         differs in any other way
+         */
+        Snapshot reuseFor(Program p) {
+            List<Package> pkgs = p.getPackages();
+            if (pkgs.size() != pkgNames.length) {
+                return null;
+            }
+            boolean sameFuncs = true;
+            for (int i = 0; i < pkgNames.length; i++) {
+                Package pk = pkgs.get(i);
+                if (!pkgNames[i].equals(pk.getName()) || !same(structs[i], pk.getStructs()) ||
+                        !same(vars[i], pk.getVars()))
+                {
+                    return null;
+                }
+                List<Function> fs = pk.getFuncs();
+                if (fs.size() != funcs[i].length) {
+                    return null;
+                }
+                for (int j = 0; j < funcs[i].length; j++) {
+                    Function f = fs.get(j);
+                    if (f != funcs[i][j]) {
+                        sameFuncs = false;
+                        if (!f.getName().equals(((Function) funcs[i][j]).getName())) {
+                            return null;
+                        }
+                    }
+                }
+            }
+            if (sameFuncs) {
+                return this;
+            }
+            Map<String, Function> patched = new HashMap<String, Function>(funMap);
+            for (int i = 0; i < pkgNames.length; i++) {
+                List<Function> fs = pkgs.get(i).getFuncs();
+                for (int j = 0; j < funcs[i].length; j++) {
+                    Function f = fs.get(j);
+                    if (f != funcs[i][j]) {
+                        String key = f.getName().contains("@") ? f.getName()
+                                : f.getName() + "@" + pkgNames[i];
+                        // a later function of the same name and package wins
+                        if (patched.get(key) == funcs[i][j]) {
+                            patched.put(key, f);
+                        }
+                    }
+                }
+            }
+            NameResolver nr = new NameResolver();
+            lendTo(nr);
+            return new Snapshot(p, patched, nr);
+        }
+
+        private static boolean same(Object[] was, List<?> is) {
+            if (was.length != is.size()) {
+                return false;
+            }
+            for (int i = 0; i < was.length; i++) {
+                if (was[i] != is.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
\ No newline at end of file
@@ -73,6 +73,8 @@ public class SymbolTable implements Cloneable
     private List includedFns;
 
     private boolean makeShared = false;
+    /** number of registerVar and registerFn calls on this table */
+    private int modCount = 0;
 
     public static class VarInfo
     {
@@ -166,6 +168,7 @@ public class SymbolTable implements Cloneable
         {
             vars.put(name, new VarInfo(type, origin, kind));
         }
+        ++modCount;
     }
 
     /** Registers a new function in the symbol table. */
@@ -174,6 +177,20 @@ public class SymbolTable implements Cloneable
         // Ignore null-named functions.
         if (fn.getName() != null)
             fns.put(fn.getName(), fn);
+        ++modCount;
+    }
+
+    /**
+     * @return a number that grows whenever something is registered in this table or
+     *         one of its parents; what was looked up in the table holds while it stays
+     *         the same
+     */
+    public long stamp() {
+        long s = 0;
+        for (SymbolTable t = this; t != null; t = t.parent) {
+            s += t.modCount;
+        }
+        return s;
     }
 
     /** Helper method to get the VarInfo for a name.  If the symbol is
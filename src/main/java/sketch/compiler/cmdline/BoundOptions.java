@@ -49,10 +49,24 @@ public class BoundOptions extends CliAnnotatedOptionGroup {
             + "holes from 1 to n bits.")
     public CliOptional<Integer> incremental = new CliOptional<Integer>(5);
 
+    @CliParameter(help = "Order in which --bnd-incremental tries bit widths. LINEAR tries "
+            + "1, 2, ..., n; DOUBLING tries 1, 2, 4, ... and stops at the first width that works; "
+            + "BINARY also bisects below that width to find the smallest one that works.")
+    public IncrementalSchedule incSchedule = IncrementalSchedule.LINEAR;
+
+    public enum IncrementalSchedule {
+        LINEAR, DOUBLING, BINARY
+    }
+
     @CliParameter(help = "Bounds inlining to n levels of recursion, so each "
             + "function can appear at most n times in the stack.")
     public int inlineAmnt = 5;
 
+    @CliParameter(help = "Generators that make no holes and have at least n binary "
+            + "operations are preprocessed once and called, rather than inlined, where "
+            + "none of the arguments is a known constant. 0 always inlines them.")
+    public int outlineAmnt = 0;
+
     @CliParameter(help = "Determine whether inline-amnt will bound the number of times a "
             + "callsite will appear on the stack (CALLSITE) or the number of times a call name will appear on the stack (CALLNAME).")
     public BoundMode boundMode = BoundMode.CALLNAME;
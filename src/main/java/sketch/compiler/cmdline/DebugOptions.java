@@ -51,6 +51,10 @@ public class DebugOptions extends CliAnnotatedOptionGroup {
     @CliParameter(shortname = "P", help = "Stages / visitors to dump the program before (comma-sep)", hide_default = true, inlinesep = ",")
     public CmdLineHashSet dumpBefore = new CmdLineHashSet();
 
+    @CliParameter(help = "Write the time, allocation and AST size of each stage and pass "
+            + "to the given file, as JSON")
+    public String telemetry = null;
+
     @CliParameter(help = "Feed the backend input file to a bash script to check its validity")
     public String checkBackInput = null;
 
@@ -44,6 +44,18 @@ public class FrontendOptions extends CliAnnotatedOptionGroup {
     @CliParameter(help = "Changes the default temp directory from $HOME/.sketch/tmp to a different value.")
     public String tempdir = null;
 
+    @CliParameter(help = "Reuse solutions of earlier runs that produced the same backend program "
+            + "under the same solver options.")
+    public boolean solutionCache = false;
+
+    @CliParameter(help = "Directory for the solution cache; implies --fe-solution-cache. "
+            + "By default it lives in the sketch temp directory.")
+    public String cacheDir = null;
+
+    @CliParameter(help = "Size bound for the solution cache in MiB; least recently used "
+            + "solutions are dropped first.")
+    public int cacheMaxMb = 64;
+
     @CliParameter(metavar = "FILE.tex", help = "Outputs documentation to FILE.tex. Sketch compiler will not actually be invoked if you pass this flag.")
     public String outputDocs = null;
 
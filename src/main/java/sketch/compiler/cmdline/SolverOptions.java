@@ -65,6 +65,28 @@ public class SolverOptions extends CliAnnotatedOptionGroup {
     @CliParameter(help = "Runs backend in parallel.")
     public boolean parallel = false;
 
+    @CliParameter(help = "Streams the program into the solver's standard input instead of "
+            + "writing a temporary file first. Ignored for parallel and incremental runs.")
+    public boolean streamInput = false;
+
+    @CliParameter(help = "Writes short interned ids instead of variable names into the "
+            + "solver input. Makes the file smaller, but counterexamples become harder to read.")
+    public boolean compactNames = false;
+
+    @CliParameter(help = "Writes each distinct compound expression of a function once, "
+            + "assigned to a temporary, and refers to it by that name afterwards. Makes the "
+            + "solver input smaller when unrolling and inlining repeat subexpressions.")
+    public boolean shareNodes = false;
+
+    @CliParameter(help = "Translates each function for the solver separately, on this many "
+            + "threads. Temporaries are numbered per function, so the solver input differs "
+            + "from the default but not between thread counts. 0 (default) is off.")
+    public int pevalThreads = 0;
+
+    @CliParameter(help = "Stops the solver as soon as it prints a line containing one of "
+            + "these markers, e.g. UNSATISFIABLE, and counts the run as unsatisfiable.", hide_default = true, inlinesep = ",")
+    public CmdLineHashSet stopOn = new CmdLineHashSet();
+
     @CliParameter(help = "Uses a different integer solver that scales better for larger integers.")
     public boolean nativeints = false;
 
@@ -80,6 +102,15 @@ public class SolverOptions extends CliAnnotatedOptionGroup {
     @CliParameter(help = "Number of cores to use.")
     public int pCPUs = 0;
 
+    @CliParameter(help = "Keeps up to this many solver processes running in interactive mode "
+            + "and reuses them across trials. 0 starts a new process for every trial. A reused "
+            + "process keeps the random stream it was started with, unless --slv-seed is set: "
+            + "then only trials with the same seed share a process.")
+    public int poolSize = 0;
+
+    @CliParameter(help = "Restarts a pooled solver process after this many jobs.")
+    public int poolJobs = 16;
+
     @CliParameter(help = "Concretize high-impact holes.")
     public boolean randassign = false;
 
@@ -96,9 +127,18 @@ public class SolverOptions extends CliAnnotatedOptionGroup {
     public Strategies strategy = Strategies.NOT_SET;
 
     public enum Strategies {
-        NOT_SET, MIN_TIME, MAX_TIME, WILCOXON
+        NOT_SET, MIN_TIME, MAX_TIME, WILCOXON, PORTFOLIO
     }
 
+    @CliParameter(help = "Saves the per-degree timings sampled by the parallel strategies "
+            + "for each sketch and starts the next run of the same sketch from them.")
+    public boolean degreePriors = false;
+
+    @CliParameter(help = "Configurations raced by the PORTFOLIO strategy. Each one is a "
+            + "colon-separated list of deg=N, cbits=N, inline=N and randassign=0|1, e.g. "
+            + "deg=8:cbits=6. A default portfolio is used if none are given.", hide_default = true, inlinesep = ",")
+    public CmdLineHashSet portfolio = new CmdLineHashSet();
+
     @CliParameter(help = "SAT solver to use for verification. Options: 'ABC' "
             + "for the ABC solver, 'MINI' for the MiniSat solver.")
     public VerifSolvers verif = VerifSolvers.NOT_SET;
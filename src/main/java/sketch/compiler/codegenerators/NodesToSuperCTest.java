@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Set;
 
 import sketch.compiler.ast.core.Function;
+import sketch.compiler.ast.core.NameResolver;
 import sketch.compiler.ast.core.Package;
 import sketch.compiler.ast.core.Parameter;
 import sketch.compiler.ast.core.Program;
@@ -23,7 +24,6 @@ public class NodesToSuperCTest extends NodesToJava {
 
     private NodesToSuperCpp _converter;
     private String filename;
-    private StringBuffer output;
     // private HashMap<String,Function> fMap;
     private Set<String> testFuncs;
     private static final String IN = "in";
@@ -42,18 +42,22 @@ public class NodesToSuperCTest extends NodesToJava {
         BND = bnd;
         this.filename = filename;
         _converter = new NodesToSuperCpp(null, filename);
-        output = new StringBuffer();
         testFuncs = new HashSet<String>();
     }
 
     protected void writeLine(String s) {
-        output.append(indent);
-        output.append(s);
-        output.append("\n");
+        out.print(indent);
+        out.print(s);
+        out.print("\n");
     }
 
     @Override
     public Object visitProgram(Program prog) {
+        return unitToString(prog);
+    }
+
+    @Override
+    protected void writeUnit(Program prog) {
         writeLine("#include <stdio.h>");
         writeLine("#include <stdlib.h>");
         writeLine("#include <time.h>");
@@ -61,7 +65,10 @@ public class NodesToSuperCTest extends NodesToJava {
         writeLine("#include \"vops.h\"");
         writeLine("#include \"" + filename + ".h\"\n");
         writeLine("using namespace std;\n");
-        super.visitProgram(prog);
+        nres = new NameResolver(prog);
+        for (Package pkg : prog.getPackages()) {
+            pkg.accept(this);
+        }
         writeLine("int main(int argc, char** argv) {");
         addIndent();
         writeLine("Parameters p(argc, argv);");
@@ -73,7 +80,6 @@ public class NodesToSuperCTest extends NodesToJava {
         writeLine("return 0;");
         unIndent();
         writeLine("}");
-        return output.toString();
     }
 
     public Object visitPackage(Package spec) {
@@ -262,10 +262,10 @@ public class NodesToSuperCpp extends NodesToJava {
         symtab = new SymbolTable(symtab);
 
         // Put context label at the start of the block, too.
-        String result = "{";
+        StringBuilder result = new StringBuilder("{");
         if (printSourceLines && stmt != null)
-            result += " // " + stmt;
-        result += "\n";
+            result.append(" // ").append(stmt);
+        result.append("\n");
         addIndent();
         pbStack.push(postBlock);
         postBlock = null;
@@ -287,20 +287,20 @@ public class NodesToSuperCpp extends NodesToJava {
             if (printSourceLines && s != null)
                 line += " // " + s;
             line += "\n";
-            result += line;
+            result.append(line);
         }
         if (postBlock != null) {
             if (!hasReturned) {
-                result += postBlock;
+                result.append(postBlock);
             }
             postBlock = null;
         }
         preStmt = oldPS;
         postBlock = pbStack.pop();
         unIndent();
-        result += indent + "}";
+        result.append(indent).append("}");
         symtab = oldSymTab;
-        return result;
+        return result.toString();
     }
 
     public Object visitStmtReturn(StmtReturn stmt) {
@@ -730,24 +730,25 @@ public class NodesToSuperCpp extends NodesToJava {
 
     @Override
     public Object visitProgram(Program prog) {
-        nres = new NameResolver(prog);
-
+        return unitToString(prog);
+    }
 
-        String ret = (String) super.visitProgram(prog);
-        StringBuffer preamble = new StringBuffer();
+    @Override
+    protected void writeUnit(Program prog) {
+        nres = new NameResolver(prog);
         if (addIncludes) {
-            preamble.append("#include <cstdio>\n");
-            preamble.append("#include <assert.h>\n");
-            preamble.append("#include <iostream>\n");
-            preamble.append("using namespace std;\n");
-            preamble.append("#include \"vops.h\"\n");
-            preamble.append("#include \"");
-            preamble.append(filename);
-            preamble.append(".h\"\n");
-        }
-        preamble.append(ret);
-        // System.out.println(preamble.toString());
-        return preamble.toString();
+            out.print("#include <cstdio>\n");
+            out.print("#include <assert.h>\n");
+            out.print("#include <iostream>\n");
+            out.print("using namespace std;\n");
+            out.print("#include \"vops.h\"\n");
+            out.print("#include \"");
+            out.print(filename);
+            out.print(".h\"\n");
+        }
+        for (Package pkg : prog.getPackages()) {
+            pkg.accept(this);
+        }
     }
 
     public String outputStructure(StructDef struct) {
@@ -834,26 +835,26 @@ public class NodesToSuperCpp extends NodesToJava {
         symtab = new SymbolTable(symtab);
         nres.setPackage(spec);
 
-        String result = "namespace " + spec.getName() + "{\n\n";
+        out.print("namespace " + spec.getName() + "{\n\n");
 
         for (Iterator iter = spec.getStructs().iterator(); iter.hasNext();) {
             StructDef struct = (StructDef) iter.next();
-            result += outputStructure(struct);
+            out.print(outputStructure(struct));
         }
 
         for (FieldDecl v : spec.getVars()) {
-            result += v.accept(this);
+            out.print(v.accept(this));
         }
 
         for (Iterator iter = spec.getFuncs().iterator(); iter.hasNext();) {
             Function oldFunc = (Function) iter.next();
             symtab.registerFn(oldFunc);
-            result += (String) oldFunc.accept(this);
+            out.print((String) oldFunc.accept(this));
         }
 
         symtab = oldSymTab;
-        result += "\n}\n";
-        return result;
+        out.print("\n}\n");
+        return null;
     }
 
     public String classFullName(StructDef struct) {
@@ -204,25 +204,24 @@ public class NodesToSuperH extends NodesToSuperCpp {
     }
 
     @Override
-    public Object visitProgram(Program prog) {
+    protected void writeUnit(Program prog) {
         String defname = filename.toUpperCase() + "_H";
         defname = defname.replace('.', '_');
-        String ret = "#ifndef " + defname + "\n";
-        ret += "#define " + defname + "\n\n";
-        ret += "#include <cstring>\n\n";
-        ret += "#include \"vops.h\"\n\n";
+        out.print("#ifndef " + defname + "\n");
+        out.print("#define " + defname + "\n\n");
+        out.print("#include <cstring>\n\n");
+        out.print("#include \"vops.h\"\n\n");
 
         for (Package pkg : prog.getPackages()) {
-            ret += "namespace " + pkg.getName() + "{\n";
+            out.print("namespace " + pkg.getName() + "{\n");
             for (StructDef ts : pkg.getStructs()) {
-                ret += structDecl(ts);
+                out.print(structDecl(ts));
             }
-            ret += "}\n";
+            out.print("}\n");
         }
 
-        ret += super.visitProgram(prog);
-        ret += "\n#endif\n";
-        return ret;
+        super.writeUnit(prog);
+        out.print("\n#endif\n");
     }
 
     public String structDecl(StructDef struct) {
@@ -236,26 +235,29 @@ public class NodesToSuperH extends NodesToSuperCpp {
     }
 
     public Object visitPackage(Package spec) {
-        String result = "";
+        // the structs add to preIncludes, which goes before all of the package
+        StringBuilder result = new StringBuilder();
         nres.setPackage(spec);
         preIncludes = "";
-        result += "namespace " + spec.getName() + "{\n";
+        result.append("namespace " + spec.getName() + "{\n");
         for (Iterator iter = spec.getStructs().iterator(); iter.hasNext();) {
             StructDef struct = (StructDef) iter.next();
-            result += structDecl(struct);
+            result.append(structDecl(struct));
         }
 
         for (Iterator iter = spec.getStructs().iterator(); iter.hasNext();) {
             StructDef struct = (StructDef) iter.next();
-            result += outputStructure(struct);
+            result.append(outputStructure(struct));
         }
+        out.print(preIncludes);
+        out.print(result);
 
         for (Iterator iter = spec.getFuncs().iterator(); iter.hasNext();) {
             Function oldFunc = (Function) iter.next();
-            result += (String) oldFunc.accept(this);
+            out.print((String) oldFunc.accept(this));
         }
-        result += "}\n";
-        return preIncludes + result;
+        out.print("}\n");
+        return null;
     }
 
 
@@ -16,6 +16,10 @@
 
 package sketch.compiler.codegenerators.tojava;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
@@ -494,6 +498,54 @@ public class NodesToJava extends SymbolTableVisitor
     }
 
 
+    /** Where writeUnit puts its output; null unless a program is being generated. */
+    protected PrintWriter out = null;
+
+    /**
+     * Writes the code for prog to w. Generators that override writeUnit write it as it is
+     * generated, rather than building it up in a String first.
+     */
+    public void writeProgram(Program prog, Writer w) throws IOException {
+        PrintWriter old = out;
+        out = w instanceof PrintWriter ? (PrintWriter) w : new PrintWriter(w);
+        try {
+            writeUnit(prog);
+            out.flush();
+            if (out.checkError()) {
+                throw new IOException("error writing the code generated by " +
+                        getClass().getSimpleName());
+            }
+        } finally {
+            out = old;
+        }
+    }
+
+    /**
+     * The code writeUnit writes for prog, as a String; what visitProgram returns in the
+     * generators that override writeUnit.
+     */
+    protected String unitToString(Program prog) {
+        PrintWriter old = out;
+        StringWriter sw = new StringWriter();
+        out = new PrintWriter(sw);
+        try {
+            writeUnit(prog);
+        } finally {
+            out = old;
+        }
+        return sw.toString();
+    }
+
+    /**
+     * Writes the code for prog to out. By default that is what visitProgram returns;
+     * generators override this to write each piece as soon as it is generated, so that
+     * the whole program never has to be held in memory, and then have visitProgram
+     * return unitToString.
+     */
+    protected void writeUnit(Program prog) {
+        out.print((String) visitProgram(prog));
+    }
+
     public Object visitProgram(Program prog)
     {
         // Nothing special here either.  Just accumulate all of the
@@ -532,30 +584,29 @@ public class NodesToJava extends SymbolTableVisitor
         symtab = new SymbolTable(symtab);
 
         // Put context label at the start of the block, too.
-        String result = "{";
+        StringBuilder result = new StringBuilder("{");
         if (printSourceLines && stmt != null)
-            result += " // " + stmt;
-        result += "\n";
+            result.append(" // ").append(stmt);
+        result.append("\n");
         addIndent();
         for (Iterator iter = stmt.getStmts().iterator(); iter.hasNext(); )
         {
             Statement s = (Statement)iter.next();
-            String line = indent;
-            line += (String)s.accept(this);
+            result.append(indent);
+            result.append((String)s.accept(this));
 		    if(!(s instanceof StmtIfThen ||
 		         s instanceof StmtFor ||
 		         s instanceof StmtWhile)) {
-		    	line += ";";
+		    	result.append(";");
 		    }
             if (printSourceLines && s != null)
-                line += " // " + s;
-            line += "\n";
-            result += line;
+                result.append(" // ").append(s);
+            result.append("\n");
         }
         unIndent();
-        result += indent + "}";
+        result.append(indent).append("}");
         symtab = oldSymTab;
-        return result;
+        return result.toString();
     }
 
 
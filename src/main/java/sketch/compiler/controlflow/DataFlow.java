@@ -16,6 +16,11 @@
 
 package sketch.compiler.controlflow;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,68 +39,147 @@ import java.util.Set;
 public abstract class DataFlow
 {
     /**
-     * Actually perform the data-flow analysis.
+     * Actually perform the data-flow analysis.  The flow function
+     * must depend only on the node and the value passed in, since
+     * its result for a node is reused until that value changes.
      *
      * @param cfg  control-flow graph to perform analysis on
      * @return     map of CFGNode to Lattice element at entry to the node
      */
-    public Map run(CFG cfg)
+    public Map<CFGNode, Lattice> run(CFG cfg)
     {
         // This is the worklist algorithm from Muchnik,
         // _Advanced Compiler Design and Implementation_, 1st ed.,
-        // Section 8.4, p. 232.
-        CFGNode entry;
-        if (isForward())
-            entry = cfg.getEntry();
-        else
-            entry = cfg.getExit();
+        // Section 8.4, p. 232, made sparse: a node's flow function
+        // is applied again only when the value at its entry changes,
+        // and only the nodes that read its result are revisited.
+        // Nodes are numbered in reverse postorder from the entry, and
+        // the worklist always yields the lowest number, so most nodes
+        // see all their inputs before they are first processed.
+        boolean forward = isForward();
+        CFGNode entry = forward ? cfg.getEntry() : cfg.getExit();
         Lattice init = getInit();
         Lattice top = init.getTop();
-        Lattice bottom = init.getBottom();
-        Map dfin = new HashMap();
-
-        // Set up initial worklist:
-        final Set worklist = new HashSet(cfg.getNodes());
-        worklist.remove(entry);
-        
-        // Set up initial dfin:
-        dfin.put(entry, init);
-        for (Iterator iter = worklist.iterator(); iter.hasNext(); )
-            dfin.put(iter.next(), top);
-
-        while (!worklist.isEmpty())
+
+        List<CFGNode> order = reversePostorder(cfg, entry);
+        int n = order.size();
+        Map<CFGNode, Integer> index = new HashMap<CFGNode, Integer>();
+        for (int i = 0; i < n; i++)
+            index.put(order.get(i), i);
+        int[][] ins = new int[n][];
+        int[][] outs = new int[n][];
+        for (int i = 0; i < n; i++)
+        {
+            ins[i] = indices(inputs(cfg, order.get(i)), index);
+            outs[i] = indices(outputs(cfg, order.get(i)), index);
+        }
+
+        // Set up initial values; the entry node (number 0) keeps
+        // init, everything else starts at top and is on the worklist.
+        Lattice[] dfin = new Lattice[n];
+        Lattice[] dfout = new Lattice[n];
+        dfin[0] = init;
+        for (int i = 1; i < n; i++)
+            dfin[i] = top;
+        BitSet worklist = new BitSet(n);
+        worklist.set(1, n);
+
+        for (int b = worklist.nextSetBit(0); b >= 0; b = worklist.nextSetBit(0))
         {
-            // Get an arbitrary element from the list.
-            CFGNode b = (CFGNode)worklist.iterator().next();
-            worklist.remove(b);
+            worklist.clear(b);
             Lattice totaleffect = top;
-            
-            List preds;
-            if (isForward())
-                preds = cfg.getPredecessors(b);
-            else
-                preds = cfg.getSuccessors(b);
-            for (Iterator iter = preds.iterator(); iter.hasNext(); )
+            for (int p : ins[b])
             {
-                CFGNode p = (CFGNode)iter.next();
-                Lattice in = (Lattice)dfin.get(p);
-                Lattice effect = flowFunction(p, in);
-                totaleffect = totaleffect.meet(effect);
+                if (dfout[p] == null)
+                    dfout[p] = flowFunction(order.get(p), dfin[p]);
+                totaleffect = totaleffect.meet(dfout[p]);
             }
 
-            if (!totaleffect.equals(dfin.get(b)))
+            if (!totaleffect.equals(dfin[b]))
             {
                 // entry to this node has changed; save new value
                 // and put successors in worklist
-                dfin.put(b, totaleffect);
-                if (isForward())
-                    worklist.addAll(cfg.getSuccessors(b));
-                else
-                    worklist.addAll(cfg.getPredecessors(b));
+                dfin[b] = totaleffect;
+                dfout[b] = null;
+                for (int s : outs[b])
+                    if (s != 0)
+                        worklist.set(s);
+            }
+        }
+
+        Map<CFGNode, Lattice> result = new HashMap<CFGNode, Lattice>();
+        for (int i = 0; i < n; i++)
+            result.put(order.get(i), dfin[i]);
+        return result;
+    }
+
+    /**
+     * The nodes of a CFG, those reachable from the entry first in
+     * reverse postorder of the direction of the analysis, then the
+     * rest in the order of the CFG's node list.
+     */
+    protected List<CFGNode> reversePostorder(CFG cfg, CFGNode entry)
+    {
+        List<CFGNode> post = new ArrayList<CFGNode>();
+        Set<CFGNode> seen = new HashSet<CFGNode>();
+        // explicit stack of (node, outputs not yet visited), so deep
+        // graphs don't overflow the call stack
+        Deque<CFGNode> nodes = new ArrayDeque<CFGNode>();
+        Deque<Iterator<CFGNode>> pending = new ArrayDeque<Iterator<CFGNode>>();
+        seen.add(entry);
+        nodes.push(entry);
+        pending.push(outputs(cfg, entry).iterator());
+        while (!nodes.isEmpty())
+        {
+            Iterator<CFGNode> it = pending.peek();
+            if (it.hasNext())
+            {
+                CFGNode next = it.next();
+                if (seen.add(next))
+                {
+                    nodes.push(next);
+                    pending.push(outputs(cfg, next).iterator());
+                }
+            }
+            else
+            {
+                post.add(nodes.pop());
+                pending.pop();
             }
         }
+        Collections.reverse(post);
+        for (CFGNode node : cfg.getNodes())
+            if (seen.add(node))
+                post.add(node);
+        return post;
+    }
+
+    /** Nodes whose results flow into node, in the direction of the analysis. */
+    protected List<CFGNode> inputs(CFG cfg, CFGNode node)
+    {
+        return isForward() ? cfg.getPredecessors(node) : targets(cfg.getSuccessors(node));
+    }
 
-        return dfin;
+    /** Nodes that node's result flows into, in the direction of the analysis. */
+    protected List<CFGNode> outputs(CFG cfg, CFGNode node)
+    {
+        return isForward() ? targets(cfg.getSuccessors(node)) : cfg.getPredecessors(node);
+    }
+
+    private static List<CFGNode> targets(List<CFGNode.EdgePair> edges)
+    {
+        List<CFGNode> nodes = new ArrayList<CFGNode>(edges.size());
+        for (CFGNode.EdgePair e : edges)
+            nodes.add(e.node);
+        return nodes;
+    }
+
+    private static int[] indices(List<CFGNode> nodes, Map<CFGNode, Integer> index)
+    {
+        int[] result = new int[nodes.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = index.get(nodes.get(i));
+        return result;
     }
 
     /**
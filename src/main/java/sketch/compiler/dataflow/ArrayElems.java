@@ -0,0 +1,118 @@
+package sketch.compiler.dataflow;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * The array elements a varState holds itself, keyed by index. Indices in [0, limit) are
+ * stored in a plain array that grows as needed, so lookups don't box or search; the rare
+ * index outside that range (negative ones, or ones past the declared array size) goes to
+ * a sorted map.
+ * <p>
+ * Iteration is in ascending index order, as with a TreeMap, which the callers rely on to
+ * produce their output in a fixed order.
+ */
+class ArrayElems {
+    private static final abstractValue[] EMPTY = new abstractValue[0];
+
+    private final int limit;
+    private abstractValue[] dense = EMPTY;
+    private TreeMap<Integer, abstractValue> outliers = null;
+    private int size = 0;
+
+    /**
+     * @param sizeHint
+     *            the size of the array, or a negative number if it isn't known
+     */
+    ArrayElems(int sizeHint) {
+        limit = Math.max(sizeHint, 16);
+    }
+
+    public abstractValue get(int i) {
+        if (i >= 0 && i < limit) {
+            return i < dense.length ? dense[i] : null;
+        }
+        return outliers == null ? null : outliers.get(i);
+    }
+
+    public boolean containsKey(int i) {
+        return get(i) != null;
+    }
+
+    public void put(int i, abstractValue val) {
+        assert val != null;
+        if (i >= 0 && i < limit) {
+            if (i >= dense.length) {
+                int n = Math.min(limit, Math.max(i + 1, 2 * dense.length));
+                abstractValue[] grown = new abstractValue[n];
+                System.arraycopy(dense, 0, grown, 0, dense.length);
+                dense = grown;
+            }
+            if (dense[i] == null) {
+                ++size;
+            }
+            dense[i] = val;
+        } else {
+            if (outliers == null) {
+                outliers = new TreeMap<Integer, abstractValue>();
+            }
+            if (outliers.put(i, val) == null) {
+                ++size;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Entries in ascending index order. */
+    public Iterator<Entry<Integer, abstractValue>> iterator() {
+        return new Iterator<Entry<Integer, abstractValue>>() {
+            // negative outliers, then the dense part, then the outliers past it
+            final Iterator<Entry<Integer, abstractValue>> low =
+                    outliers == null ? null : outliers.headMap(0).entrySet().iterator();
+            final Iterator<Entry<Integer, abstractValue>> high =
+                    outliers == null ? null : outliers.tailMap(0).entrySet().iterator();
+            int next = low != null && low.hasNext() ? -1 : nextDense(0);
+
+            int nextDense(int from) {
+                while (from < dense.length && dense[from] == null) {
+                    ++from;
+                }
+                return from;
+            }
+
+            public boolean hasNext() {
+                return (low != null && low.hasNext()) || next < dense.length ||
+                        (high != null && high.hasNext());
+            }
+
+            public Entry<Integer, abstractValue> next() {
+                if (low != null && low.hasNext()) {
+                    Entry<Integer, abstractValue> e = low.next();
+                    if (!low.hasNext()) {
+                        next = nextDense(0);
+                    }
+                    return e;
+                }
+                if (next < dense.length) {
+                    int i = next;
+                    next = nextDense(i + 1);
+                    return new SimpleImmutableEntry<Integer, abstractValue>(i, dense[i]);
+                }
+                if (high != null && high.hasNext()) {
+                    return high.next();
+                }
+                throw new NoSuchElementException();
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
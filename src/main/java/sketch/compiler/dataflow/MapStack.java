@@ -17,14 +17,21 @@ import sketch.compiler.dataflow.MethodState.ChangeTracker;
 
 class MapStack{
     
-    private HashMap<String, String> curVT; //HashMap<String, String>
+    /** Names declared at this level; null until the first one. */
+    private HashMap<String, String> curVT = null;
     private MapStack kid;
     private int vcount=0;
     private String lastSeen=null;
     private String lastSeenTrans=null;
     
     MapStack(){
-        curVT = new HashMap<String, String>();
+    }
+
+    private HashMap<String, String> declared(){
+        if(curVT == null){
+            curVT = new HashMap<String, String>();
+        }
+        return curVT;
     }
     /**
      * Creates the new unique name for this variable.
@@ -34,7 +41,7 @@ class MapStack{
         ++vcount;
         lastSeen = var;
         lastSeenTrans = newname;
-        curVT.put(var, newname);
+        declared().put(var, newname);
         return newname;
     }
     
@@ -48,7 +55,7 @@ class MapStack{
         String newname = "__" + Integer.toHexString(vcount); ++vcount;
         lastSeen = newname;
         lastSeenTrans = newname;
-        curVT.put(newname, newname);
+        declared().put(newname, newname);
         return newname;
     }
     
@@ -61,6 +68,10 @@ class MapStack{
     }
     
     public MapStack popLevel(HashMap<String, varState> vars, ChangeTracker changeTracker){
+        if(curVT == null){
+            kid.vcount = vcount;
+            return kid;
+        }
         Iterator it = curVT.values().iterator();
         while(it.hasNext()){
             String nm = (String) it.next();
@@ -85,7 +96,7 @@ class MapStack{
         if( nm == lastSeen) 
             return lastSeenTrans;
         lastSeen = nm;
-        String t = (String) curVT.get(nm);
+        String t = curVT != null ? curVT.get(nm) : null;
         if(t != null)
             lastSeenTrans = t;
         else
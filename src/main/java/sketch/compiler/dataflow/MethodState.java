@@ -1,6 +1,7 @@
 package sketch.compiler.dataflow;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -28,7 +29,8 @@ public class MethodState {
     public class ChangeTracker{
         protected ChangeTracker kid;
         protected abstractValue condition;
-        protected Map<String, varState> deltas;
+        /** NO_DELTAS until the first change, since most branches change nothing. */
+        protected Map<String, varState> deltas = NO_DELTAS;
         protected int methodBoundary = 0;
         varState rvf = null;
         /*
@@ -97,15 +99,14 @@ public class MethodState {
         public void remove(String var){
             if(deltas.containsKey(var)){
                 deltas.get(var).outOfScope();
+                deltas.remove(var);
             }
-            deltas.remove(var);
             if(kid != null){
                 assert !kid.deltas.containsKey(var): "This can't happen.";
             }
         }
 
         ChangeTracker(abstractValue cond, boolean isNegated){
-            deltas = new HashMap<String, varState>();
             condition = cond;
             if( isNegated){
                 condition = vtype.not(condition);
@@ -132,6 +133,9 @@ public class MethodState {
             if( !deltas.containsKey(var) ){
                 current = UTvarState(var);
                 current = current.getDeltaClone(vtype);
+                if(deltas == NO_DELTAS){
+                    deltas = new HashMap<String, varState>();
+                }
                 deltas.put(var, current );
             }else{
                 current = deltas.get(var);
@@ -150,11 +154,21 @@ public class MethodState {
         }
 
         boolean knowsAbout(String var){
-            varState i = deltas.get(var);
-            if(i != null)
-                return true;
-            else
-                return kid != null && kid.knowsAbout(var);
+            return lookup(var) != null;
+        }
+
+        /**
+         * @return the state of var in this tracker or the nearest one below it that
+         *         changed var, or null if none did.
+         */
+        varState lookup(String var){
+            for(ChangeTracker ct = this; ct != null; ct = ct.kid){
+                varState i = ct.deltas.get(var);
+                if(i != null){
+                    return i;
+                }
+            }
+            return null;
         }
 
 
@@ -178,6 +192,8 @@ public class MethodState {
 
     }
 
+    private static final Map<String, varState> NO_DELTAS = Collections.emptyMap();
+
     abstractValueType vtype;
 
     /**
@@ -322,8 +338,9 @@ public class MethodState {
             assert i != null : "The variable " + var + " is causing problems";
             return i;
         }else{
-            if( changeTracker.knowsAbout(var) ){
-                return changeTracker.varState(var);
+            varState d = changeTracker.lookup(var);
+            if( d != null ){
+                return d;
             }else{
                 assert(i != null) : ( "The variable " + var + " is used before being declared. This is an  internal error indicating a bug in the synthesizer. \n");
                 return i;
@@ -938,6 +955,11 @@ public class MethodState {
         return UTvarValue(var);
     }
 
+    public varState varState(String var){
+        assert var != null : "NOO!!";
+        return UTvarState(this.transName(var));
+    }
+
     public Type varType(String var){
         assert var != null : "NOO!!";
         var = this.transName(var);
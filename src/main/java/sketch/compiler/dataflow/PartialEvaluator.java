@@ -83,7 +83,7 @@ public class PartialEvaluator extends SymbolTableVisitor {
     }
 
     protected List<Function> funcsToAnalyze = null;
-    private Set<String> funcsAnalyzed = null;
+    protected Set<String> funcsAnalyzed = null;
 
 
     public String transName(String name){
@@ -188,6 +188,26 @@ public class PartialEvaluator extends SymbolTableVisitor {
         RangeLen rl = exp.getSelection();
         abstractValue newStart = (abstractValue) rl.start().accept(this);
         Expression nstart = exprRV;
+        if (!isReplacer && !rl.hasLen() && newStart.hasIntVal() &&
+                exp.getBase() instanceof ExprVar)
+        {
+            // A single element of an array variable, as in loop bodies that walk an
+            // array: read it from the variable's state rather than building the value
+            // of the whole array to pick the element out of.
+            varState base = state.varState(((ExprVar) exp.getBase()).getName());
+            abstractValue elem;
+            try {
+                elem =
+                        vtype.arracc(base, newStart.getIntVal(), exp.isUnchecked() ||
+                                uncheckedArrays);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new ArrayIndexOutOfBoundsException(exp.getCx() + ":" +
+                        e.getMessage() + ":" + exp);
+            }
+            if (elem != null) {
+                return elem;
+            }
+        }
         abstractValue newBase = (abstractValue) exp.getBase().accept(this);
         Expression nbase = exprRV;
 
@@ -2096,6 +2116,29 @@ nvarContext,
         if (funcsToAnalyze.size() == 0) {
             System.out.println("WARNING: Your input file contains no sketches. Make sure all your sketches use the implements keyword properly.");
         }
+        analyzeFunctions(newfuns);
+
+        List<Package> newPkgs = new ArrayList<Package>();
+        for (Package pkg : p.getPackages()) {
+            Package newPkg = preprocPkg(pkg);
+            String pkgName = pkg.getName();
+            newfuns.get(pkgName).addAll(newPkg.getFuncs());
+            newPkgs.add(new Package(newPkg, pkgName, newPkg.getStructs(),
+                    newPkg.getVars(), newfuns.get(pkgName), newPkg.getSpAsserts()));
+        }
+
+        return p.creator().streams(newPkgs).create();
+    }
+
+
+    /**
+     * Analyzes the functions in funcsToAnalyze, and any that get queued while doing so,
+     * in queue order; each function is analyzed once.
+     *
+     * @param newfuns
+     *            where the analyzed functions go, by package, if this is a replacer
+     */
+    protected void analyzeFunctions(Map<String, List<Function>> newfuns) {
         while (funcsToAnalyze.size() > 0) {
             Function f = funcsToAnalyze.get(0);
             String pkgName = f.getPkg();
@@ -2117,20 +2160,8 @@ nvarContext,
             Function tf = funcsToAnalyze.remove(0);
             assert tf == f;
         }
-
-        List<Package> newPkgs = new ArrayList<Package>();
-        for (Package pkg : p.getPackages()) {
-            Package newPkg = preprocPkg(pkg);
-            String pkgName = pkg.getName();
-            newfuns.get(pkgName).addAll(newPkg.getFuncs());
-            newPkgs.add(new Package(newPkg, pkgName, newPkg.getStructs(),
-                    newPkg.getVars(), newfuns.get(pkgName), newPkg.getSpAsserts()));
-        }
-
-        return p.creator().streams(newPkgs).create();
     }
 
-
     public Package preprocPkg(Package spec)
  {
         Level lvl = state.pushLevel("visitStreamSpec");
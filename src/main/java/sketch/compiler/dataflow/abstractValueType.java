@@ -77,6 +77,16 @@ public abstract class abstractValueType{
 	abstract public abstractValue arracc(abstractValue arr, abstractValue idx);
 	abstract public abstractValue arracc(abstractValue arr, abstractValue idx, abstractValue len, boolean isUnchecked);
 	
+	/**
+	 * Reads element idx of an array variable straight from its state. Types that
+	 * support this give the same result as arracc on arr.state(this), without building
+	 * the value of the whole array first.
+	 * @return null if the caller should use arracc on the value of the whole array.
+	 */
+	public abstractValue arracc(varState arr, int idx, boolean isUnchecked) {
+		return null;
+	}
+	
 	abstract public abstractValue cast(abstractValue v1, Type t);
 	
 	abstract public abstractValue not(abstractValue v1);
@@ -20,7 +20,33 @@ public class IntAbsValue extends abstractValue {
 
 	protected int type;
 	protected Object obj;
+    /** the value when type is INT; obj is unused then */
+    protected int intVal;
     protected boolean knownGeqZero;
+    /** shared instances of small constants must never be updated */
+    protected boolean interned = false;
+
+    static final int SMALL_MIN = -128;
+    static final int SMALL_MAX = 1024;
+    private static final IntAbsValue[] smallConsts = new IntAbsValue[SMALL_MAX - SMALL_MIN + 1];
+    static {
+        for (int i = SMALL_MIN; i <= SMALL_MAX; i++) {
+            IntAbsValue v = new IntAbsValue(i);
+            v.interned = true;
+            smallConsts[i - SMALL_MIN] = v;
+        }
+    }
+
+    /**
+     * @return a constant; small ones are shared, so the result must not be updated, which
+     *         holds for any value that isn't the left-hand side of an assignment.
+     */
+    public static IntAbsValue constant(int v) {
+        if (v >= SMALL_MIN && v <= SMALL_MAX) {
+            return smallConsts[v - SMALL_MIN];
+        }
+        return new IntAbsValue(v);
+    }
 
     public static abstractValue symbolic(String s, boolean b) {
         IntAbsValue iab = new IntAbsValue();
@@ -50,7 +76,7 @@ public class IntAbsValue extends abstractValue {
 		switch(type){
 		case INT: 
 			if(v2.type != INT  ) return false;
-			return v2.obj.equals(obj);			
+			return v2.intVal == intVal;
 		case LIST: {
 			if(v2.type != LIST) return false;			
 			Iterator<abstractValue> it1 = getVectValue().iterator();
@@ -87,6 +113,7 @@ public class IntAbsValue extends abstractValue {
 	public IntAbsValue(IntAbsValue n){
 		this.obj = n.obj;
 		this.type = n.type;
+		this.intVal = n.intVal;
 		this.isVolatile = n.isVolatile;
         this.knownGeqZero = n.knownGeqZero;
         this.knownCases = n.cloneCases();
@@ -147,13 +174,13 @@ public class IntAbsValue extends abstractValue {
 	}
 	
 	public IntAbsValue(boolean obj){
-		this.obj = obj? new Integer(1) : new Integer(0);
+		this.intVal = obj ? 1 : 0;
 		this.type = INT;
         this.knownGeqZero = true;
 	}
 	
 	public IntAbsValue(int obj){
-		this.obj = obj;
+		this.intVal = obj;
 		this.type = INT;
         this.knownGeqZero = obj >= 0;
 	}
@@ -195,7 +222,7 @@ public class IntAbsValue extends abstractValue {
 
 	public int getIntVal() {
 		assert type == INT : "Incorrect value type. Asking for int from " + this;
-		return ((Integer)this.obj).intValue();
+		return intVal;
 	}
 
     public double getRealVal() {
@@ -228,6 +255,7 @@ public class IntAbsValue extends abstractValue {
 
 	@Override
 	public void makeVolatile(){
+		assert !interned : "Shared constant " + this + " can't be made volatile";
 		super.makeVolatile();
 		this.obj = null;
 		this.type = BOTTOM;
@@ -237,17 +265,19 @@ public class IntAbsValue extends abstractValue {
 		if(isVolatile){ return; }// If the variable is volatile, the update has no effect.
 		assert v instanceof IntAbsValue;
 		IntAbsValue ntsv = ((IntAbsValue)v);
+		assert !interned : "Shared constant " + this + " can't be updated";
 		//assert ntsv.type == type  || ntsv.type == BOTTOM || type == BOTTOM : "Updating with incompatible values " +  v + " <> " + this;
 		{
 			obj = ntsv.obj;
 			type = ntsv.type;
+			intVal = ntsv.intVal;
 			knownGeqZero = ntsv.knownGeqZero();
             knownCases = ntsv.knownCases;
 		}
 	}
 	public String toString(){
 		switch(type){
-		case INT: return obj.toString()+ (isVolatile ? "_v" : "");
+		case INT: return Integer.toString(intVal) + (isVolatile ? "_v" : "");
 		case LIST: {
 			String rval = "$ ";
 			int i=0;
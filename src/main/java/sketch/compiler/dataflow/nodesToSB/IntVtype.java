@@ -74,7 +74,7 @@ public class IntVtype extends abstractValueType {
     }
 
 	public abstractValue CONST(int v){
-		return new IntAbsValue(v);
+		return IntAbsValue.constant(v);
 	}
 
 	public abstractValue NULL(){
@@ -82,7 +82,7 @@ public class IntVtype extends abstractValueType {
 	}
 
 	public abstractValue CONST(boolean v){
-		return new IntAbsValue(v);
+		return IntAbsValue.constant(v ? 1 : 0);
 	}
 
 
@@ -417,6 +417,20 @@ public class IntVtype extends abstractValueType {
 	}
 
 
+	public abstractValue arracc(varState arr, int idx, boolean isUnchecked) {
+		int size = arr.numKeys();
+		if( !arr.isArr() || size < 0 ){
+			// not a vector; arracc(abstractValue...) knows what to do with it
+			return null;
+		}
+		if( !isUnchecked && (idx < 0 || idx >= size)  )
+			throw new ArrayIndexOutOfBoundsException("ARRAY OUT OF BOUNDS !(0<=" + idx + " < " + size+") ");
+		if(idx < 0 || idx >= size)
+			return outOfBounds();
+		return arr.element(idx);
+	}
+
+
 	protected abstractValue rawArracc(abstractValue arr, abstractValue idx){
         return BOTTOM("((" + arr + ")[|" + idx + "|])");
 	}
@@ -430,7 +444,7 @@ public class IntVtype extends abstractValueType {
 		if(v1.isVect() && type.equals( TypePrimitive.inttype ) ){
 			//Casting a bit-vector into an integer.
 			List<abstractValue> lst = v1.getVectValue();
-			String result =  "( $$";
+			StringBuilder result = new StringBuilder("( $$");
 			int i = 0;
 	    	int val=0;
 	    	int t = 1;
@@ -438,22 +452,22 @@ public class IntVtype extends abstractValueType {
 			for(Iterator<abstractValue> it = lst.iterator(); it.hasNext(); ){
 				abstractValue o = it.next();
 	    		if(!o.hasIntVal()){
-	    			result += " " + o;
+	    			result.append(' ').append(o);
 	    			hasValue = false;
 	    		}else{
 	    			int curv =  o.getIntVal();
-	    			result += " " + curv;
+	    			result.append(' ').append(curv);
 	    			assert curv == 1 || curv == 0 : "Casting only works for boolean arrays!!" + v1;
 	    			if( curv == 1 ) val += t;
 	    			t = t*2;
 	    		}
 	    		++i;
 			}
-			result += " $$ )";
+			result.append(" $$ )");
 			if(hasValue){
 				return CONST(val);
 	    	}else{
-	    		return BOTTOM(result);
+	    		return BOTTOM(result.toString());
 	    	}
 		}
 
@@ -84,11 +84,19 @@ public class NtsbState extends varState {
         return new NtsbState(n, tp, vt);
     }
     
+    /**
+     * A delta clone of parent. Unlike a new state it has no lhsIdxs of its own, since
+     * only the root's are used, and doesn't size or fill its elements.
+     */
+    protected NtsbState(NtsbState parent){
+        super(parent.t);
+        this.name = parent.name;
+        this.vtype = parent.vtype;
+        helperDeltaClone(parent, vtype);
+    }
+
     public varState getDeltaClone(abstractValueType vt){
-        NtsbState st  = getNewSelf(name, t, vtype);
-        st.helperDeltaClone(this, vtype);
-        if(st.rootParent() != this)  st.lhsIdxs = null;
-        return st;
+        return new NtsbState(this);
     }
     
     public void update(abstractValue val, abstractValueType vt){
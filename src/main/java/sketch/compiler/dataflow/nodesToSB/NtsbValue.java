@@ -18,6 +18,23 @@ public class NtsbValue extends IntAbsValue {
     int B;
     NtsbValue X;
 
+    private static final NtsbValue[] smallConsts = new NtsbValue[SMALL_MAX - SMALL_MIN + 1];
+    static {
+        for (int i = SMALL_MIN; i <= SMALL_MAX; i++) {
+            NtsbValue v = new NtsbValue(i);
+            v.interned = true;
+            smallConsts[i - SMALL_MIN] = v;
+        }
+    }
+
+    /** Like IntAbsValue.constant: small constants are shared and must not be updated. */
+    public static NtsbValue constant(int v) {
+        if (v >= SMALL_MIN && v <= SMALL_MAX) {
+            return smallConsts[v - SMALL_MIN];
+        }
+        return new NtsbValue(v);
+    }
+
     public abstractValue clone() {
         return new NtsbValue(this);
     }
@@ -61,6 +78,7 @@ public class NtsbValue extends IntAbsValue {
         this.rhsIdx = n.rhsIdx;
         this.obj = n.obj;
         this.type = n.type;
+        this.intVal = n.intVal;
         this.name = n.name;
         this.isVolatile = n.isVolatile;
     }
@@ -77,7 +95,11 @@ public class NtsbValue extends IntAbsValue {
     }
 
     public NtsbValue(Object obj, int type) {
-        this.obj = obj;
+        if (type == INT) {
+            this.intVal = (Integer) obj;
+        } else {
+            this.obj = obj;
+        }
         this.type = type;
         this.name = null;
     }
@@ -97,13 +119,13 @@ public class NtsbValue extends IntAbsValue {
     }
 
     public NtsbValue(boolean obj) {
-        this.obj = obj ? new Integer(1) : new Integer(0);
+        this.intVal = obj ? 1 : 0;
         this.type = INT;
         this.name = null;
     }
 
     public NtsbValue(int obj) {
-        this.obj = obj;
+        this.intVal = obj;
         this.type = INT;
         this.name = null;
     }
@@ -111,27 +133,43 @@ public class NtsbValue extends IntAbsValue {
     public String toString() {
         switch (type) {
             case INT:
-                return obj.toString();
-            case LIST: {
-                StringBuffer rval = new StringBuffer();
-                rval.append("$ ");
+                return Integer.toString(intVal);
+            case BOTTOM:
+                if (lhsIdx != null) {
+                    return name + "_" + this.getrhsIdx();
+                }
+                if (obj != null && !(obj instanceof List<?>)) {
+                    return obj.toString();
+                }
+        }
+        return appendTo(new StringBuilder()).toString();
+    }
 
+    /**
+     * Appends the same text toString returns. Vectors and tuples print their elements
+     * into sb rather than building a string per element, so printing a nested value is
+     * linear in the length of its text.
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        switch (type) {
+            case INT:
+                return sb.append(intVal);
+            case LIST: {
+                sb.append("$ ");
                 for (Iterator<abstractValue> it = getVectValue().iterator(); it.hasNext();)
                 {
-                    rval.append(it.next().toString() + " ");
+                    append(sb, it.next()).append(' ');
                 }
-                rval.append("$");
-                return rval.toString();
+                return sb.append('$');
             }
 
             case BOTTOM: {
                 if (lhsIdx != null) {
-                    return name + "_" + this.getrhsIdx();
+                    return sb.append(name).append('_').append(this.getrhsIdx());
                 } else {
                     if (obj != null) {
                         if (obj instanceof List<?>) {
-                            StringBuffer rval = new StringBuffer();
-                        rval.append("[" + name + "]{< ");
+                            sb.append('[').append(name).append("]{< ");
 
                             for (Iterator<abstractValue> it =
                                     ((List<abstractValue>) obj).iterator(); it.hasNext();)
@@ -139,21 +177,28 @@ public class NtsbValue extends IntAbsValue {
                                 abstractValue av = it.next();
 
                                 if (av.isVect()) {
-                                    rval.append("( {" + av.toString() + "} ) ");
+                                    append(sb.append("( {"), av).append("} ) ");
                                 } else {
-                                    rval.append(av.toString() + " ");
+                                    append(sb, av).append(' ');
                                 }
                             }
-                            rval.append(">}");
-                            return rval.toString();
+                            return sb.append(">}");
 
                         }
-                        return obj.toString();
+                        return sb.append(obj);
                     }
                 }
             }
         }
-        return "NULL";
+        return sb.append("NULL");
+    }
+
+    /** Appends v.toString() to sb, without the intermediate string for an NtsbValue. */
+    public static StringBuilder append(StringBuilder sb, abstractValue v) {
+        if (v instanceof NtsbValue) {
+            return ((NtsbValue) v).appendTo(sb);
+        }
+        return sb.append(v);
     }
 
     public void update(abstractValue v) {
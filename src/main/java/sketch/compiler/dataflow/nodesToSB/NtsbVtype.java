@@ -72,61 +72,76 @@ public class NtsbVtype extends IntVtype {
             String isFixed = star.isFixed()? " *" : "";
             NtsbValue nv = null;
             for(int i=0; i<ssz; ++i){               
-                String cvar = oracle.addBinding(star.getDepObject(i));
-                String rval = "";
+                String cvar;
+                synchronized (oracle) {
+                    // see holeName
+                    cvar = oracle.addBinding(star.getDepObject(i));
+                }
+                StringBuilder rval = new StringBuilder();
 
-                if (node instanceof ExprSpecialStar) {
-                    rval += ((ExprSpecialStar) node).name;
+                if (node instanceof ExprSpecialStar && star.getSize() > 1 &&
+                        !star.isCounter())
+                {
+                    rval.append(((ExprSpecialStar) node).name);
                 }
 
-                String head = "";
 				if (star.special() && t.equals(TypePrimitive.inttype)) {
-                    head += "SPVAR " + star.upperBound() + " ";
-                    head += " $ ";
+                    rval.append("SPVAR ").append(star.upperBound()).append(" ");
+                    rval.append(" $ ");
                     for (ExprStar es : star.parentHoles()) {
-                        head += es.getSname() + " ";
+                        rval.append(es.getSname()).append(" ");
                     }
-                    head += " $ ";
+                    rval.append(" $ ");
                 }
 
-                head += "<";
+                rval.append("<");
 
                 if (star.getSize() > 1 && !star.isCounter())
-                    rval += head + cvar + "  " + star.getSize() + isFixed;
+                    rval.append(cvar).append("  ").append(star.getSize()).append(isFixed);
                 else
-                    rval = head + cvar;
+                    rval.append(cvar);
                 if (star.isCounter()) {
-                    rval += " %";
+                    rval.append(" %");
                 }
 				if (star.isAngelicMax()) {
-					rval += " +> ";
+					rval.append(" +> ");
 				} else if (t.equals(TypePrimitive.floattype)
 						|| t.equals(TypePrimitive.doubletype)) {
 					if (star.special()) {
-						rval += " *>";
+						rval.append(" *>");
 					} else {
 						if (star.hasRange()) {
-							rval += " " + star.fLowerBound() + " "
-									+ star.fUpperBound();
+							rval.append(" ").append(star.fLowerBound()).append(" ")
+									.append(star.fUpperBound());
 						}
-						rval += " $> ";
+						rval.append(" $> ");
 					}
 				} else {
-					rval += "> ";
+					rval.append("> ");
 				}
-                nv = new NtsbValue(rval, true);
+                nv = new NtsbValue(rval.toString(), true);
                 if(avlist != null) avlist.add(nv);
             }
             if(avlist != null) nv = new NtsbValue(avlist);
             if(oracle.allowMemoization()){ memoizedValues.put(node, nv); }
             return nv;
         }
-        String cvar = oracle.addBinding(node);
+        String cvar = holeName(node);
         NtsbValue nv =new NtsbValue("<" + cvar +  ">", true);
         if(oracle.allowMemoization()){ memoizedValues.put(node, nv); }
         return nv;
     }
 
+    /**
+     * The oracle is shared by the evaluators of ProduceBooleanFunctions.evaluateSeparately,
+     * which may run on different threads, so naming a hole is done under its lock.
+     */
+    protected String holeName(Object node) {
+        synchronized (oracle) {
+            return oracle.addBinding(node);
+        }
+    }
+
     public abstractValue BOTTOM(){
         return new NtsbValue();
     }
@@ -149,7 +164,7 @@ public class NtsbVtype extends IntVtype {
 
     @Override
     public abstractValue BOTTOM(String label, boolean knownGeqZero) {
-        return new NtsbValue(label, knownGeqZero);
+        return new NtsbValue(share(label), knownGeqZero);
     }
 
     public abstractValue RCONST(double v) {
@@ -157,7 +172,7 @@ public class NtsbVtype extends IntVtype {
     }
 
     public abstractValue CONST(int v){
-        return new NtsbValue(v); 
+        return NtsbValue.constant(v);
     }
 
     public abstractValue NULL(){
@@ -165,7 +180,7 @@ public class NtsbVtype extends IntVtype {
     }
 
     public abstractValue CONST(boolean v){
-        return new NtsbValue(v); 
+        return NtsbValue.constant(v ? 1 : 0);
     }
 
     public abstractValue TUPLE(List<abstractValue> vals, String name) {
@@ -209,7 +224,113 @@ public class NtsbVtype extends IntVtype {
     }
 
     public varState cleanState(String var, Type t, MethodState mstate){
-        return new NtsbState(var, t, this);
+        return new NtsbState(internName(var), t, this);
+    }
+
+    /**
+     * Maps each variable name to a short id when compact names are on; null when the
+     * frontend names are emitted as they are.
+     */
+    protected Map<String, String> internedNames = null;
+
+    public void useCompactNames() {
+        internedNames = new HashMap<String, String>();
+    }
+
+    public int numInternedNames() {
+        return internedNames == null ? 0 : internedNames.size();
+    }
+
+    /**
+     * Returns the name under which var is written to the solver. Ids contain no
+     * underscore after the prefix, so the suffixes NtsbState appends can't collide.
+     */
+    public String internName(String var) {
+        if (internedNames == null || (var.length() > 0 && var.charAt(0) == '#')) {
+            return var;
+        }
+        String id = internedNames.get(var);
+        if (id == null) {
+            id = "__n" + Integer.toString(internedNames.size(), 36);
+            internedNames.put(var, id);
+        }
+        return id;
+    }
+
+    /**
+     * Compound expressions of the current function body, mapped to the temporary each was
+     * assigned to, or to SEEN_ONCE; null when sharing is off or no body is open.
+     */
+    protected Map<String, String> sharedNodes = null;
+    private static final String SEEN_ONCE = new String("");
+    protected boolean shareNodes = false;
+    protected int numDistinctNodes = 0;
+    protected int numSharedNodes = 0;
+    protected int numReusedNodes = 0;
+
+    public void useSharedNodes() {
+        shareNodes = true;
+    }
+
+    /**
+     * Called once the opening brace of a function body is out. Temporaries are only
+     * visible in the body that defines them, so each body starts with an empty table.
+     */
+    public void beginBody() {
+        if (shareNodes) {
+            sharedNodes = new HashMap<String, String>();
+        }
+    }
+
+    /** Called before anything is written on the body's last lines. */
+    public void endBody() {
+        sharedNodes = null;
+    }
+
+    /** @return the number of distinct compound expressions seen in function bodies */
+    public int numDistinctNodes() {
+        return numDistinctNodes;
+    }
+
+    /** @return the number of expressions that were assigned to a temporary */
+    public int numSharedNodes() {
+        return numSharedNodes;
+    }
+
+    /** @return the number of repeated occurrences replaced by a temporary */
+    public int numReusedNodes() {
+        return numReusedNodes;
+    }
+
+    /**
+     * When sharing is on and a compound expression comes up again in the same body,
+     * writes it to the solver once, as an assignment to a temporary, and returns the
+     * temporary's name to be used in its place. An expression seen only once stays
+     * inline, since a temporary would make the file larger. Expressions that mention the
+     * path condition placeholder mean something different where they end up, so they are
+     * left alone.
+     */
+    protected String share(String label) {
+        if (sharedNodes == null || label.length() == 0 || label.charAt(0) != '(' ||
+                label.contains("<#PC"))
+        {
+            return label;
+        }
+        String id = sharedNodes.get(label);
+        if (id == null) {
+            // the first time, the expression is written where it's used
+            sharedNodes.put(label, SEEN_ONCE);
+            ++numDistinctNodes;
+            return label;
+        }
+        ++numReusedNodes;
+        if (id == SEEN_ONCE) {
+            // no underscore after the prefix, so no collision with NtsbState's names
+            id = "__h" + Integer.toString(numSharedNodes++, 36);
+            sharedNodes.put(label, id);
+            out.println(id + " = " + label + ";");
+        }
+        return id;
     }
 
     public abstractValue plus(abstractValue v1, abstractValue v2) {
@@ -291,14 +412,14 @@ public class NtsbVtype extends IntVtype {
         if (nidx.isAXPB && arr.isVect()) {
             int i=nidx.B;
             List<abstractValue> vlist =arr.getVectValue(); 
-            String rval = "($ ";
+            StringBuilder rval = new StringBuilder("($ ");
             int vsz = vlist.size();
             while(i < vsz ){
-                rval += vlist.get(i).toString() + " ";
+                NtsbValue.append(rval, vlist.get(i)).append(' ');
                 i += nidx.A;
             }
-            rval += "$[" + nidx.X + "])";
-            return BOTTOM(rval);
+            NtsbValue.append(rval.append("$["), nidx.X).append("])");
+            return BOTTOM(rval.toString());
         }else
             return BOTTOM("(" + arr + "[" + idx + "])");
     }
@@ -318,7 +439,7 @@ public class NtsbVtype extends IntVtype {
         Iterator<abstractValue> actualParams = avlist.iterator();
         Iterator<Parameter> formalParams = fun.getParams().iterator();
         String name = fun.getName();
-        String plist = "";
+        StringBuilder plist = new StringBuilder();
         while( actualParams.hasNext() ){
             abstractValue param = actualParams.next();
             Parameter formal = formalParams.next();
@@ -331,12 +452,12 @@ public class NtsbVtype extends IntVtype {
                 Expression eln = ta.getLength();
                 Integer lntt = eln == null ? null : eln.getIValue();
                 if (lntt == null) {
-                    plist += "( {" + param + "} )";
+                    NtsbValue.append(plist.append("( {"), param).append("} )");
                 } else {
                     List<abstractValue> lst = param.getVectValue();
                     assert lntt == lst.size();
                     for (int tt = 0; tt < lst.size(); ++tt) {
-                        plist += lst.get(tt) + " ";
+                        NtsbValue.append(plist, lst.get(tt)).append(' ');
                     }
                 }
             }else{
@@ -346,19 +467,20 @@ public class NtsbVtype extends IntVtype {
                     Expression eln = ta.getLength();
                     Integer lntt = eln == null ? null : eln.getIValue();
                     if (lntt == null) {
-                        plist += param;
+                        NtsbValue.append(plist, param);
                     } else {
                         int lsz = lntt;
-                        plist += param + " ";
+                        NtsbValue.append(plist, param).append(' ');
                         for (int tt = 1; tt < lsz; ++tt) {
-                            plist += CONST(ta.getBase().defaultValue().getIValue()) + " ";
+                            NtsbValue.append(plist,
+                                    CONST(ta.getBase().defaultValue().getIValue())).append(' ');
                         }
                     }
                 } else {
-                    plist += param;
+                    NtsbValue.append(plist, param);
                 }
             }
-            plist += " ";           
+            plist.append(' ');           
         }
 
         formalParams = fun.getParams().iterator();
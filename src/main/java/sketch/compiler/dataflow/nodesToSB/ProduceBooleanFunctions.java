@@ -1,16 +1,26 @@
 package sketch.compiler.dataflow.nodesToSB;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 import sketch.compiler.ast.core.Annotation;
+import sketch.compiler.ast.core.FEReplacer;
 import sketch.compiler.ast.core.Function;
 import sketch.compiler.ast.core.NameResolver;
 import sketch.compiler.ast.core.Package;
 import sketch.compiler.ast.core.Parameter;
 import sketch.compiler.ast.core.Program;
 import sketch.compiler.ast.core.TempVarGen;
+import sketch.compiler.ast.core.exprs.ExprBinary;
 import sketch.compiler.ast.core.exprs.ExprConstInt;
 import sketch.compiler.ast.core.exprs.ExprField;
 import sketch.compiler.ast.core.exprs.ExprFunCall;
@@ -57,6 +67,7 @@ import sketch.util.exceptions.ExceptionAtNode;
 public class ProduceBooleanFunctions extends PartialEvaluator {
     boolean tracing = false;
     int maxArrSize;
+    final ValueOracle oracle;
 
     class FunctionHoleTracker {
         Function current;
@@ -243,6 +254,7 @@ public class ProduceBooleanFunctions extends PartialEvaluator {
     public ProduceBooleanFunctions(TempVarGen varGen, 
             ValueOracle oracle, PrintStream out, int maxUnroll, int maxArrSize, RecursionControl rcontrol, boolean tracing){
         super(new NtsbVtype(oracle, out), varGen, false, maxUnroll, rcontrol);
+        this.oracle = oracle;
         this.tracing = tracing;
         if(tracing){
             rcontrol.activateTracing();
@@ -251,6 +263,216 @@ public class ProduceBooleanFunctions extends PartialEvaluator {
         state.useRetTracker();
     }
 
+    /**
+     * Write short interned ids instead of the scoped variable names; see
+     * NtsbVtype.internName.
+     */
+    public void useCompactNames() {
+        ((NtsbVtype) this.vtype).useCompactNames();
+    }
+
+    public int numInternedNames() {
+        return ((NtsbVtype) this.vtype).numInternedNames() + internedSeparately;
+    }
+
+    /**
+     * Write each distinct compound expression of a function body once, under a temporary
+     * name; see NtsbVtype.share.
+     */
+    public void useSharedNodes() {
+        ((NtsbVtype) this.vtype).useSharedNodes();
+    }
+
+    public int numDistinctNodes() {
+        return ((NtsbVtype) this.vtype).numDistinctNodes() + distinctSeparately;
+    }
+
+    public int numSharedNodes() {
+        return ((NtsbVtype) this.vtype).numSharedNodes() + sharedSeparately;
+    }
+
+    public int numReusedNodes() {
+        return ((NtsbVtype) this.vtype).numReusedNodes() + reusedSeparately;
+    }
+
+    /** Threads for evaluateSeparately; zero if functions are evaluated by this object. */
+    int separateThreads = 0;
+    int internedSeparately = 0;
+    int distinctSeparately = 0;
+    int sharedSeparately = 0;
+    int reusedSeparately = 0;
+    Program program;
+
+    /**
+     * Evaluate each function with an evaluator of its own, starting from a clean state,
+     * on up to nthreads threads. Variable and temporary numbering then restart with each
+     * function, so the output no longer matches that of the default mode, but it's the
+     * same for any number of threads: the functions are written in the usual order.
+     */
+    public void evaluateSeparately(int nthreads) {
+        separateThreads = nthreads;
+    }
+
+    /**
+     * The text one function produces. It's held back in memory until release() is called,
+     * i.e., until the functions before it are done, and goes straight to the target from
+     * then on, so at least one function is always written without buffering.
+     */
+    static class Relay extends OutputStream {
+        private ByteArrayOutputStream held = new ByteArrayOutputStream();
+        private OutputStream target = null;
+
+        public synchronized void write(int b) throws IOException {
+            if (target != null) {
+                target.write(b);
+            } else {
+                held.write(b);
+            }
+        }
+
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (target != null) {
+                target.write(b, off, len);
+            } else {
+                held.write(b, off, len);
+            }
+        }
+
+        public synchronized void release(OutputStream to) throws IOException {
+            held.writeTo(to);
+            held = null;
+            target = to;
+        }
+    }
+
+    /** What the evaluation of one function produced, to be merged in order. */
+    class Separate {
+        final Relay text = new Relay();
+        ProduceBooleanFunctions pbf;
+        Throwable failure;
+    }
+
+    @Override
+    protected void analyzeFunctions(Map<String, List<Function>> newfuns) {
+        if (separateThreads <= 0) {
+            super.analyzeFunctions(newfuns);
+            return;
+        }
+        nameSelectHoles(program);
+        final boolean copyable = rcontrol.freshCopy() != null;
+        int nthreads = copyable ? separateThreads : 1;
+        ExecutorService pool = nthreads > 1 ? Executors.newFixedThreadPool(nthreads) : null;
+        PrintStream out = ((NtsbVtype) this.vtype).out;
+        try {
+            // Functions queued while evaluating one wave make up the next, so the
+            // functions come out in the same order as with super.analyzeFunctions.
+            while (funcsToAnalyze.size() > 0) {
+                List<Separate> results = new ArrayList<Separate>();
+                List<FutureTask<Separate>> pending = new ArrayList<FutureTask<Separate>>();
+                for (final Function f : funcsToAnalyze) {
+                    if (!funcsAnalyzed.add(f.getFullName()) || f.isUninterp()) {
+                        continue;
+                    }
+                    final Separate res = new Separate();
+                    FutureTask<Separate> task = new FutureTask<Separate>(new Callable<Separate>() {
+                        public Separate call() {
+                            evaluateAlone(f, copyable ? rcontrol.freshCopy() : rcontrol, res);
+                            return res;
+                        }
+                    });
+                    if (pool != null) {
+                        pool.execute(task);
+                    }
+                    results.add(res);
+                    pending.add(task);
+                }
+                funcsToAnalyze.clear();
+                for (int i = 0; i < results.size(); ++i) {
+                    results.get(i).text.release(out);
+                    if (pool == null) {
+                        pending.get(i).run();
+                    }
+                    merge(pending.get(i).get());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+            rcontrol.setNameRes(nres);
+        }
+    }
+
+    void evaluateAlone(Function f, RecursionControl rc, Separate res) {
+        PrintStream text = new PrintStream(res.text, false);
+        ProduceBooleanFunctions pbf =
+                new ProduceBooleanFunctions(new TempVarGen("_pe"), oracle, text,
+                        MAX_UNROLL, maxArrSize, rc, tracing);
+        if (((NtsbVtype) vtype).internedNames != null) {
+            pbf.useCompactNames();
+        }
+        if (((NtsbVtype) vtype).shareNodes) {
+            pbf.useSharedNodes();
+        }
+        pbf.nres = new NameResolver(program);
+        pbf.vtype.setNres(pbf.nres);
+        rc.setNameRes(pbf.nres);
+        pbf.pkgs = pkgs;
+        pbf.mainfuns = mainfuns;
+        pbf.funcsToAnalyze = new ArrayList<Function>();
+        pbf.nres.setPackage(pkgs.get(f.getPkg()));
+        try {
+            f.accept(pbf);
+        } catch (RuntimeException e) {
+            res.failure = e;
+        } catch (Error e) {
+            res.failure = e;
+        }
+        text.flush();
+        res.pbf = pbf;
+    }
+
+    /** Takes over what was learned evaluating one function, or rethrows its failure. */
+    void merge(Separate res) {
+        if (res.failure instanceof RuntimeException) {
+            throw (RuntimeException) res.failure;
+        } else if (res.failure != null) {
+            throw (Error) res.failure;
+        }
+        ProduceBooleanFunctions pbf = res.pbf;
+        fhtrack.functionHoles.putAll(pbf.fhtrack.functionHoles);
+        fhtrack.functionCalls.putAll(pbf.fhtrack.functionCalls);
+        fhtrack.fixes.putAll(pbf.fhtrack.fixes);
+        assertions.addAll(pbf.assertions);
+        funcsToAnalyze.addAll(pbf.funcsToAnalyze);
+        internedSeparately += pbf.numInternedNames();
+        distinctSeparately += pbf.numDistinctNodes();
+        sharedSeparately += pbf.numSharedNodes();
+        reusedSeparately += pbf.numReusedNodes();
+    }
+
+    /**
+     * Names the holes that aren't ExprStars, i.e., the choices of {| a | b |}, in program
+     * order, so the names don't depend on which thread gets to a hole first.
+     */
+    void nameSelectHoles(Program p) {
+        final NtsbVtype vt = (NtsbVtype) vtype;
+        p.accept(new FEReplacer() {
+            public Object visitExprBinary(ExprBinary exp) {
+                if (exp.getOp() == ExprBinary.BINOP_SELECT) {
+                    vt.holeName(exp);
+                }
+                return super.visitExprBinary(exp);
+            }
+        });
+    }
+
 
 
     List<Integer> opsizes;
@@ -602,6 +824,7 @@ public class ProduceBooleanFunctions extends PartialEvaluator {
 
         PrintStream out = ((NtsbVtype) this.vtype).out;
         out.println("{");
+        ((NtsbVtype) this.vtype).beginBody();
         for (Entry<String, abstractValue> toi : toinit.entrySet()) {
             state.setVarValue(toi.getKey(), toi.getValue());
         }
@@ -670,6 +893,7 @@ public class ProduceBooleanFunctions extends PartialEvaluator {
         Statement newBody = (Statement) func.getBody().accept(this);
 
         state.handleReturnTrackers();
+        ((NtsbVtype) this.vtype).endBody();
         if (hasOutput) {
             out.print(finalOpname + "= [" + NtsbVtype.funTypeName(func) + "]{< ");
         }
@@ -691,6 +915,7 @@ public class ProduceBooleanFunctions extends PartialEvaluator {
     Set<String> mainfuns = new HashSet<String>();
 
     public Object visitProgram(Program p) {
+        program = p;
         PrintStream out = ((NtsbVtype) this.vtype).out;
         printDeclarationsAndRegisterMainfuns(p, out);
 
@@ -8,22 +8,38 @@ import java.util.Map;
 
 import sketch.compiler.ast.core.FEReplacer;
 import sketch.compiler.ast.core.Function;
+import sketch.compiler.ast.core.Function.FcnType;
 import sketch.compiler.ast.core.Package;
 import sketch.compiler.ast.core.Parameter;
 import sketch.compiler.ast.core.TempVarGen;
+import sketch.compiler.ast.core.exprs.ExprADTHole;
+import sketch.compiler.ast.core.exprs.ExprBinary;
 import sketch.compiler.ast.core.exprs.ExprConstInt;
+import sketch.compiler.ast.core.exprs.ExprConstant;
+import sketch.compiler.ast.core.exprs.ExprField;
+import sketch.compiler.ast.core.exprs.ExprFieldsListMacro;
 import sketch.compiler.ast.core.exprs.ExprFunCall;
+import sketch.compiler.ast.core.exprs.ExprLambda;
+import sketch.compiler.ast.core.exprs.ExprLocalVariables;
 import sketch.compiler.ast.core.exprs.ExprNew;
+import sketch.compiler.ast.core.exprs.ExprSpecialStar;
 import sketch.compiler.ast.core.exprs.ExprStar;
+import sketch.compiler.ast.core.exprs.ExprTernary;
+import sketch.compiler.ast.core.exprs.ExprTypeCast;
+import sketch.compiler.ast.core.exprs.ExprUnary;
 import sketch.compiler.ast.core.exprs.ExprVar;
 import sketch.compiler.ast.core.exprs.Expression;
+import sketch.compiler.ast.core.exprs.regens.ExprRegen;
 import sketch.compiler.ast.core.stmts.Statement;
 import sketch.compiler.ast.core.stmts.StmtAssert;
 import sketch.compiler.ast.core.stmts.StmtAssign;
 import sketch.compiler.ast.core.stmts.StmtAssume;
 import sketch.compiler.ast.core.stmts.StmtBlock;
+import sketch.compiler.ast.core.stmts.StmtMinLoop;
+import sketch.compiler.ast.core.stmts.StmtMinimize;
 import sketch.compiler.ast.core.typs.StructDef;
 import sketch.compiler.ast.core.typs.Type;
+import sketch.compiler.ast.core.typs.TypeFunction;
 import sketch.compiler.ast.core.typs.TypeStructRef;
 import sketch.compiler.ast.promela.stmts.StmtFork;
 import sketch.compiler.ast.spmd.stmts.StmtSpmdfork;
@@ -300,6 +316,12 @@ public class PreprocessSketch extends DataflowWithFixpoint {
                 if(inlineStatics){
                     assert fun.isStatic() : " If you are in inlinestatics mode, you should only have statics or uninterpreted functions.";
                 }
+                if (fun.getFcnType() == FcnType.Generator && !inlineStatics &&
+                        rcontrol.testOutline(exp, fun, inputValues(exp, fun)) &&
+                        canOutline(fun))
+                {
+                    return super.visitExprFunCall(outlinedCall(exp, fun));
+                }
                 FEReplacer elimr = new EliminateReturns();
                 elimr.setNres(nres);
                 fun = (Function) fun.accept(elimr);
@@ -328,6 +350,220 @@ public class PreprocessSketch extends DataflowWithFixpoint {
         return vtype.BOTTOM();
     }
 
+    /**
+     * The values of the input arguments of exp that are built from variables and
+     * constants with operators, casts and conditionals, such as x+1; BOTTOM for the rest.
+     * Array and field reads, calls and anything else are left unevaluated, so a call
+     * that passes a[i] counts as having an unknown argument even when a and i are known.
+     */
+    private List<abstractValue> inputValues(ExprFunCall exp, Function fun) {
+        List<abstractValue> vals = new ArrayList<abstractValue>();
+        Expression oldRV = exprRV;
+        Iterator<Parameter> formalParams = fun.getParams().iterator();
+        for (Expression actual : exp.getParams()) {
+            Parameter p = formalParams.next();
+            if (!p.isParameterInput()) {
+                continue;
+            }
+            if (!(p.getType() instanceof TypeFunction) && isPureArith(actual)) {
+                vals.add((abstractValue) actual.accept(this));
+            } else {
+                vals.add(vtype.BOTTOM());
+            }
+        }
+        exprRV = oldRV;
+        return vals;
+    }
+
+    /**
+     * Whether e only combines variables and constants with operators, casts and
+     * conditionals, so evaluating it an extra time changes nothing.
+     */
+    private static boolean isPureArith(Expression e) {
+        if (e instanceof ExprVar || e instanceof ExprConstant) {
+            return true;
+        }
+        if (e instanceof ExprUnary) {
+            ExprUnary u = (ExprUnary) e;
+            return !u.hasSideEffects() && isPureArith(u.getExpr());
+        }
+        if (e instanceof ExprBinary) {
+            ExprBinary b = (ExprBinary) e;
+            return isPureArith(b.getLeft()) && isPureArith(b.getRight());
+        }
+        if (e instanceof ExprTypeCast) {
+            return isPureArith(((ExprTypeCast) e).getExpr());
+        }
+        if (e instanceof ExprTernary) {
+            ExprTernary t = (ExprTernary) e;
+            return isPureArith(t.getA()) && isPureArith(t.getB()) &&
+                    isPureArith(t.getC());
+        }
+        return false;
+    }
+
+    /** Static copies of the generators that were outlined, by full name. */
+    private final Map<String, Function> outlined = new HashMap<String, Function>();
+    /** Whether each generator looked at so far may be outlined, by full name. */
+    private final Map<String, Boolean> outlinable = new HashMap<String, Boolean>();
+
+    /**
+     * A call to a generator means the same as a call to a static copy of it if every
+     * inlined copy would be the same: the generator and those it calls make no holes,
+     * it takes no functions or type parameters, and it doesn't assume, minimize or fork.
+     */
+    boolean canOutline(Function fun) {
+        String key = fun.getFullName();
+        Boolean ok = outlinable.get(key);
+        if (ok != null) {
+            return ok;
+        }
+        // so that a generator that ends up calling itself is not outlined
+        outlinable.put(key, false);
+        ok = fun.getTypeParams().isEmpty();
+        for (Parameter p : fun.getParams()) {
+            if (p.getType() instanceof TypeFunction) {
+                ok = false;
+            }
+        }
+        if (ok) {
+            Package oldpkg = nres.curPkg();
+            nres.setPackage(pkgs.get(fun.getPkg()));
+            try {
+                FindHoles fh = new FindHoles();
+                fh.setNres(nres);
+                fun.getBody().accept(fh);
+                ok = !fh.found;
+            } finally {
+                nres.setPackage(oldpkg);
+            }
+        }
+        outlinable.put(key, ok);
+        return ok;
+    }
+
+    /** Returns exp as a call to the static copy of fun, making the copy the first time. */
+    private ExprFunCall outlinedCall(ExprFunCall exp, Function fun) {
+        Function copy = outlined.get(fun.getFullName());
+        if (copy == null) {
+            Package oldpkg = nres.curPkg();
+            nres.setPackage(pkgs.get(fun.getPkg()));
+            try {
+                copy =
+                        fun.creator().name(freshFunName(fun.getName() + "_outlined")).type(
+                                FcnType.Static).create();
+                nres.registerFun(copy);
+            } finally {
+                nres.setPackage(oldpkg);
+            }
+            funcsToAnalyze.add(copy);
+            outlined.put(fun.getFullName(), copy);
+        }
+        String name =
+                copy.getPkg().equals(currentTopPkg) ? copy.getName() : copy.getFullName();
+        return new ExprFunCall(exp, name, exp.getParams(), exp.getTypeParams());
+    }
+
+    /** Sets found if the code it visits makes holes or does anything canOutline rules out. */
+    @SuppressWarnings("deprecation")
+    private class FindHoles extends FEReplacer {
+        boolean found = false;
+
+        public Object visitExprStar(ExprStar star) {
+            found = true;
+            return star;
+        }
+
+        public Object visitExprSpecialStar(ExprSpecialStar star) {
+            found = true;
+            return star;
+        }
+
+        public Object visitExprADTHole(ExprADTHole exp) {
+            found = true;
+            return exp;
+        }
+
+        public Object visitExprLocalVariables(ExprLocalVariables exp) {
+            found = true;
+            return exp;
+        }
+
+        public Object visitExprFieldsListMacro(ExprFieldsListMacro exp) {
+            found = true;
+            return exp;
+        }
+
+        public Object visitExprRegen(ExprRegen exp) {
+            found = true;
+            return exp;
+        }
+
+        public Object visitExprLambda(ExprLambda exp) {
+            found = true;
+            return exp;
+        }
+
+        public Object visitExprField(ExprField exp) {
+            if (exp.isHole()) {
+                found = true;
+                return exp;
+            }
+            return super.visitExprField(exp);
+        }
+
+        public Object visitExprNew(ExprNew exp) {
+            if (exp.isHole()) {
+                found = true;
+                return exp;
+            }
+            return super.visitExprNew(exp);
+        }
+
+        public Object visitStmtAssume(StmtAssume stmt) {
+            found = true;
+            return stmt;
+        }
+
+        public Object visitStmtMinimize(StmtMinimize stmt) {
+            found = true;
+            return stmt;
+        }
+
+        public Object visitStmtMinLoop(StmtMinLoop stmt) {
+            found = true;
+            return stmt;
+        }
+
+        public Object visitStmtAtomicBlock(
+                sketch.compiler.ast.core.stmts.StmtAtomicBlock stmt)
+        {
+            found = true;
+            return stmt;
+        }
+
+        public Object visitStmtFork(StmtFork stmt) {
+            found = true;
+            return stmt;
+        }
+
+        public Object visitStmtSpmdfork(StmtSpmdfork stmt) {
+            found = true;
+            return stmt;
+        }
+
+        public Object visitExprFunCall(ExprFunCall exp) {
+            Function callee = nres.getFun(exp.getName());
+            if (callee == null || (callee.isUninterp() && callee.isGenerator()) ||
+                    (!callee.isUninterp() && !callee.isStatic() && !canOutline(callee)))
+            {
+                found = true;
+                return exp;
+            }
+            return super.visitExprFunCall(exp);
+        }
+    }
+
     private Expression transExpr(Expression e) {
         if (e instanceof ExprVar) {
             return e;
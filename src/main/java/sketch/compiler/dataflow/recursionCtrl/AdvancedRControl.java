@@ -1,6 +1,7 @@
 package sketch.compiler.dataflow.recursionCtrl;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
@@ -13,6 +14,7 @@ import sketch.compiler.ast.core.exprs.ExprFunCall;
 import sketch.compiler.ast.core.stmts.Statement;
 import sketch.compiler.ast.core.stmts.StmtFor;
 import sketch.compiler.ast.core.stmts.StmtIfThen;
+import sketch.compiler.dataflow.abstractValue;
 import sketch.util.wrapper.ScRichString;
 
 /**
@@ -56,6 +58,11 @@ public class AdvancedRControl extends RecursionControl {
 	WeightFunctions funWeighter = new WeightFunctions();
 	int FACTOR = 0;
     final boolean ignoreStatics;
+    /**
+     * Generators weighing less than this (see WeightFunctions) are always inlined; 0
+     * turns outlining off.
+     */
+    final int outlineWeight;
 	/**
 	 * For each function, we must keep the following information: <BR>
 	 * - Current recursion depth <BR>
@@ -170,6 +177,12 @@ public class AdvancedRControl extends RecursionControl {
 	
     public AdvancedRControl(int branchingThreshold, int maxInline, boolean ignoreStatics,
             Program prog)
+    {
+        this(branchingThreshold, maxInline, ignoreStatics, 0, prog);
+    }
+
+    public AdvancedRControl(int branchingThreshold, int maxInline, boolean ignoreStatics,
+            int outlineWeight, Program prog)
     {
 		this.branchingTheshold = branchingThreshold;
 		bfStack = new Stack<Integer>();
@@ -182,6 +195,7 @@ public class AdvancedRControl extends RecursionControl {
 		FACTOR = (funWeighter.maxWeight * 2 ) / 3;
 		MAX_INLINE = maxInline;		
         this.ignoreStatics = ignoreStatics;
+        this.outlineWeight = outlineWeight;
 	}
 	
 	
@@ -304,4 +318,44 @@ public class AdvancedRControl extends RecursionControl {
 		}		
 	}
 
+	/**
+	 * A generator is worth analyzing once when its body is big enough that repeating it
+	 * at every call site costs more than the call, and none of the arguments is known:
+	 * a single known argument (a loop bound, a selector) can make most of the body fold
+	 * away when it is inlined, which the shared copy can't do.
+	 */
+	@Override
+	public boolean testOutline(ExprFunCall fc, Function fun, List<abstractValue> actuals) {
+		if (outlineWeight <= 0) {
+			return false;
+		}
+		Integer w = funWeighter.funWeight.get(fun.getName());
+		if (w == null || w < outlineWeight) {
+			return false;
+		}
+		for (abstractValue av : actuals) {
+			if (isKnown(av)) {
+				return false;
+			}
+		}
+		if (tracing) {
+			System.out.println("OUTLINED " + fc.getName() + " weight " + w);
+		}
+		return true;
+	}
+
+	private static boolean isKnown(abstractValue av) {
+		if (av.hasIntVal()) {
+			return true;
+		}
+		if (!av.isVect()) {
+			return false;
+		}
+		for (abstractValue e : av.getVectValue()) {
+			if (!e.hasIntVal()) {
+				return false;
+			}
+		}
+		return true;
+	}
 }
@@ -48,7 +48,7 @@ public class BaseRControl extends RecursionControl {
 	}
 	
 	public InlineCounter icount = new InlineCounter();	
-	private int MAX_INLINE;
+	protected int MAX_INLINE;
 	
 	public BaseRControl(int maxInline){
 		MAX_INLINE = maxInline;
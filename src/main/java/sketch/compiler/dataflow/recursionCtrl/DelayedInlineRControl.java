@@ -18,6 +18,10 @@ public class DelayedInlineRControl extends BaseRControl {
 		MAX_OCC = maxOccurrence;
 	}
 	
+	public RecursionControl freshCopy(){
+		return new DelayedInlineRControl(MAX_INLINE, MAX_OCC);
+	}
+	
 	
 
 
@@ -1,5 +1,6 @@
 package sketch.compiler.dataflow.recursionCtrl;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
@@ -7,6 +8,7 @@ import sketch.compiler.ast.core.Function;
 import sketch.compiler.ast.core.NameResolver;
 import sketch.compiler.ast.core.exprs.ExprFunCall;
 import sketch.compiler.ast.core.stmts.Statement;
+import sketch.compiler.dataflow.abstractValue;
 
 /**
  * 
@@ -109,6 +111,19 @@ public abstract class RecursionControl{
 	 * @return return true if this call should be inlined.
 	 */
 	public abstract boolean testCall(ExprFunCall fc);
+	/**
+	 * Called before inlining a generator that could just as well be called: it makes no
+	 * holes, so every call site would get the same code. If this returns true, the caller
+	 * analyzes the generator once as a function and leaves fc as a call to it.
+	 * 
+	 * @param fc
+	 * @param fun the generator called.
+	 * @param actuals the values of the input arguments, BOTTOM where they aren't known.
+	 * @return true if the call should be left as a call rather than inlined.
+	 */
+	public boolean testOutline(ExprFunCall fc, Function fun, List<abstractValue> actuals){
+		return false;
+	}
 	/**
 	 * This function tells the caller whether the recursion control wishes to leave un-inlined functions behind as function calls or whether
 	 * they should be replaced by assertions.
@@ -123,6 +138,15 @@ public abstract class RecursionControl{
 	
 	public abstract String callStack();
 	
+	/**
+	 * @return a control with the same settings as this one and none of its state, for
+	 *         evaluating functions independently of each other; null if this kind of
+	 *         control doesn't support that.
+	 */
+	public RecursionControl freshCopy(){
+		return null;
+	}
+	
 	boolean tracing = false;
 	public void activateTracing(){
 		tracing = true;
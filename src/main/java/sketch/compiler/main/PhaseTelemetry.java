@@ -0,0 +1,252 @@
+package sketch.compiler.main;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import sketch.compiler.ast.core.FEReplacer;
+import sketch.compiler.ast.core.Program;
+import sketch.compiler.ast.core.exprs.Expression;
+import sketch.compiler.ast.core.stmts.Statement;
+
+/**
+ * Records wall time, allocated bytes and AST size for the phases of one compiler run:
+ * stages, the passes inside them, and the backend steps. Phases nest; a phase begun
+ * while another one is open on the same thread becomes its child.
+ * <p>
+ * Telemetry is off unless enable() was called, and begin() / end() do nothing then,
+ * so call sites don't need to check. Call end() in a finally block, or a failed phase
+ * stays open and whatever runs next on the thread nests under it.
+ * <p>
+ * Counting the nodes of a phase's result walks the whole program. That walk happens
+ * after the phase's clock stops, and its time and allocation are taken out of the
+ * enclosing phases on the same thread, so no phase pays for the telemetry.
+ */
+public class PhaseTelemetry {
+    protected static volatile PhaseTelemetry instance = null;
+
+    protected final long startMs = System.currentTimeMillis();
+    protected final List<Phase> roots = new ArrayList<Phase>();
+    protected final ThreadLocal<Phase> open = new ThreadLocal<Phase>();
+    protected final com.sun.management.ThreadMXBean allocBean;
+
+    protected PhaseTelemetry() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+        {
+            allocBean = (com.sun.management.ThreadMXBean) bean;
+            allocBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocBean = null;
+        }
+    }
+
+    /** Starts recording; phases begun before this are not recorded. */
+    public static void enable() {
+        instance = new PhaseTelemetry();
+    }
+
+    /** @return the current recording, or null if telemetry is off */
+    public static PhaseTelemetry get() {
+        return instance;
+    }
+
+    /**
+     * @param kind
+     *            what sort of phase this is, e.g. "stage" or "pass"
+     * @return a handle to pass to end(), or null if telemetry is off
+     */
+    public static Phase begin(String kind, String name) {
+        PhaseTelemetry t = instance;
+        return t == null ? null : t.start(t.open.get(), kind, name);
+    }
+
+    /**
+     * Begins a phase under an explicit parent, for work handed to another thread.
+     *
+     * @param parent
+     *            a phase from current() on the handing thread; may be null
+     */
+    public static Phase begin(Phase parent, String kind, String name) {
+        PhaseTelemetry t = instance;
+        return t == null ? null : t.start(parent, kind, name);
+    }
+
+    /** @return the innermost open phase of this thread, or null */
+    public static Phase current() {
+        PhaseTelemetry t = instance;
+        return t == null ? null : t.open.get();
+    }
+
+    public static void end(Phase p) {
+        end(p, null);
+    }
+
+    /**
+     * Closes a phase.
+     *
+     * @param result
+     *            the program the phase produced, whose size is recorded; null if the
+     *            phase failed or has no program to show
+     */
+    public static void end(Phase p, Program result) {
+        if (p != null) {
+            p.finish(result);
+        }
+    }
+
+    protected long allocatedBytes() {
+        return allocBean == null ? -1 : allocBean.getThreadAllocatedBytes(Thread
+                .currentThread().getId());
+    }
+
+    protected Phase start(Phase parent, String kind, String name) {
+        Phase p = new Phase(parent, kind, name);
+        synchronized (this) {
+            if (parent == null) {
+                roots.add(p);
+            } else {
+                parent.children.add(p);
+            }
+        }
+        open.set(p);
+        return p;
+    }
+
+    public class Phase {
+        public final Phase parent;
+        public final String kind;
+        public final String name;
+        public final List<Phase> children = new ArrayList<Phase>();
+        final Thread thread = Thread.currentThread();
+        final long beginMs;
+        final long beginAlloc;
+        /** spent counting the nodes of nested phases, which this phase doesn't own */
+        long countingMs = 0;
+        long countingAlloc = 0;
+        public long wallMs = -1;
+        public long allocBytes = -1;
+        public long heapBytes = -1;
+        public long nodes = -1;
+
+        Phase(Phase parent, String kind, String name) {
+            this.parent = parent;
+            this.kind = kind;
+            this.name = name;
+            beginMs = System.currentTimeMillis();
+            beginAlloc = allocatedBytes();
+        }
+
+        void finish(Program result) {
+            long endMs = System.currentTimeMillis();
+            long endAlloc = allocatedBytes();
+            wallMs = endMs - beginMs - countingMs;
+            if (beginAlloc >= 0) {
+                allocBytes = endAlloc - beginAlloc - countingAlloc;
+            }
+            Runtime rt = Runtime.getRuntime();
+            heapBytes = rt.totalMemory() - rt.freeMemory();
+            if (result != null) {
+                nodes = countNodes(result);
+                long costMs = System.currentTimeMillis() - endMs;
+                long costAlloc = allocatedBytes() - endAlloc;
+                // allocation is counted per thread, and a phase on another thread
+                // may not have waited for this one
+                for (Phase p = parent; p != null && p.thread == thread; p = p.parent) {
+                    p.countingMs += costMs;
+                    p.countingAlloc += costAlloc;
+                }
+            }
+            open.set(parent);
+        }
+    }
+
+    /** Counts the statements and expressions of a program. */
+    public static long countNodes(Program prog) {
+        final long[] n = { 0 };
+        FEReplacer counter = new FEReplacer() {
+            @Override
+            protected void doStatement(Statement stmt) {
+                n[0]++;
+                super.doStatement(stmt);
+            }
+
+            @Override
+            protected Expression doExpression(Expression expr) {
+                if (expr != null) {
+                    n[0]++;
+                }
+                return super.doExpression(expr);
+            }
+        };
+        try {
+            prog.accept(counter);
+        } catch (RuntimeException e) {
+            // some intermediate forms aren't fit for a plain FEReplacer
+            return -1;
+        } catch (AssertionError e) {
+            return -1;
+        }
+        return n[0];
+    }
+
+    public synchronized void writeJson(File f) throws IOException {
+        PrintWriter out = new PrintWriter(new FileWriter(f));
+        try {
+            out.println("{");
+            out.println("  \"startMs\": " + startMs + ",");
+            out.println("  \"totalMs\": " + (System.currentTimeMillis() - startMs) + ",");
+            out.print("  \"phases\": ");
+            writePhases(out, roots, "  ");
+            out.println();
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    protected void writePhases(PrintWriter out, List<Phase> phases, String indent) {
+        if (phases.isEmpty()) {
+            out.print("[]");
+            return;
+        }
+        out.println("[");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase p = phases.get(i);
+            String in = indent + "    ";
+            out.println(indent + "  {");
+            out.println(in + "\"kind\": " + quote(p.kind) + ",");
+            out.println(in + "\"name\": " + quote(p.name) + ",");
+            out.println(in + "\"wallMs\": " + p.wallMs + ",");
+            out.println(in + "\"allocBytes\": " + p.allocBytes + ",");
+            out.println(in + "\"heapBytes\": " + p.heapBytes + ",");
+            out.println(in + "\"nodes\": " + p.nodes + ",");
+            out.print(in + "\"children\": ");
+            writePhases(out, p.children, in);
+            out.println();
+            out.print(indent + "  }");
+            out.println(i + 1 < phases.size() ? "," : "");
+        }
+        out.print(indent + "]");
+    }
+
+    protected static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
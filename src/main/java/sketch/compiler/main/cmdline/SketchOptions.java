@@ -182,4 +182,13 @@ public class SketchOptions {
         }
         return PlatformLocalization.getLocalization().getTempPath(tmpfile);
     }
+
+    /**
+     * A directory for data kept from one run to the next, such as caches. It sits next
+     * to sktmpdir() rather than inside it, since cleanTemp() wipes sktmpdir() on every
+     * run. The directory is not created here.
+     */
+    public File persistentDir(String name) {
+        return new File(sktmpdir().getParentFile(), name);
+    }
 }
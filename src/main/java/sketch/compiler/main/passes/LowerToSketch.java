@@ -1,5 +1,6 @@
 package sketch.compiler.main.passes;
 
+import sketch.compiler.ast.core.FusedPasses;
 import sketch.compiler.ast.core.Program;
 import sketch.compiler.ast.core.TempVarGen;
 import sketch.compiler.ast.core.exprs.ExprConstInt;
@@ -82,9 +83,9 @@ public class LowerToSketch extends MetaStage {
 
         prog = (Program) prog.accept(new ExtractComplexFunParams(varGen));
         
-        prog = (Program) prog.accept(new SeparateInitializers());
-        
-        prog = (Program) prog.accept(new FlattenStmtBlocks());
+        prog =
+                (Program) prog.accept(new FusedPasses(new SeparateInitializers(),
+                        new FlattenStmtBlocks()));
         
 
         if (false) { // temporarily disabled in the main branch.
@@ -165,8 +166,6 @@ public class LowerToSketch extends MetaStage {
         prog = (Program) prog.accept(new ScalarizeVectorAssignments(varGen, false));
 
 
-        prog = (Program) prog.accept(new EliminateNestedArrAcc(false));
-
         if (false) {
         prog =
                 (Program) prog.accept(new MakeLoopsRecursive(varGen,
@@ -174,7 +173,9 @@ public class LowerToSketch extends MetaStage {
         prog.debugDump("After making loops recursive");
         }
 
-        prog = (Program) prog.accept(new EliminateHugeArrays());
+        prog =
+                (Program) prog.accept(new FusedPasses(new EliminateNestedArrAcc(false),
+                        new EliminateHugeArrays()));
 
         if (options.feOpts.truncVarArr) {
             prog = (Program) prog.accept(new TruncateVarArray(options, varGen));
@@ -3,6 +3,8 @@ package sketch.compiler.main.passes;
 import sketch.compiler.ast.core.FEReplacer;
 import sketch.compiler.ast.core.Program;
 import sketch.compiler.ast.core.TempVarGen;
+import sketch.compiler.main.PhaseTelemetry;
+import sketch.compiler.main.PhaseTelemetry.Phase;
 import sketch.compiler.main.cmdline.SketchOptions;
 import sketch.util.exceptions.LastGoodProgram;
 import sketch.util.exceptions.SketchException;
@@ -40,7 +42,13 @@ public abstract class MetaStage extends FEReplacer {
             if (options.debugOpts.dumpBefore.contains(this.name)) {
                 prog.debugDump("Before stage " + this.name);
             }
-            Program result = visitProgramInner(prog);
+            Phase phase = PhaseTelemetry.begin("stage", this.name);
+            Program result = null;
+            try {
+                result = visitProgramInner(prog);
+            } finally {
+                PhaseTelemetry.end(phase, result);
+            }
             if (options.debugOpts.dumpAfter.contains(this.name)) {
                 result.debugDump("After stage " + this.name);
             }
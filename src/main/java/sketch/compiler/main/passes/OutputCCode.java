@@ -1,5 +1,7 @@
 package sketch.compiler.main.passes;
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
@@ -10,6 +12,7 @@ import sketch.compiler.codegenerators.NodesToCUDA;
 import sketch.compiler.codegenerators.NodesToSuperCTest;
 import sketch.compiler.codegenerators.NodesToSuperCpp;
 import sketch.compiler.codegenerators.NodesToSuperH;
+import sketch.compiler.codegenerators.tojava.NodesToJava;
 import sketch.compiler.main.cmdline.SketchOptions;
 import sketch.compiler.main.seq.SequentialSketchMain;
 import sketch.compiler.passes.lowering.EliminateMultiDimArrays;
@@ -53,37 +56,22 @@ public class OutputCCode extends MetaStage {
             prog.accept(new SimpleCodePrinter());
         } else if (!options.feOpts.noOutputPrint) {
             String resultFile = SequentialSketchMain.getOutputFileName(options);
-            String hcode = (String) pprog.accept(new NodesToSuperH(resultFile));
-            String ccode = (String) pprog.accept(new NodesToSuperCpp(varGen, resultFile));
-            if (new ContainsCudaCode().run(prog)) {
-                String cucode =
-                        (String) prog.accept(new NodesToCUDA(varGen,
-                                options.feOpts.outputDir + resultFile + ".cu",
-                                tprintPyStyle));
-                printDebug("CUDA code", cucode);
-            }
             try {
-                {
-                    Writer outWriter =
-                            new FileWriter(options.feOpts.outputDir + resultFile + ".h");
-                    outWriter.write(hcode);
-                    outWriter.flush();
-                    outWriter.close();
-                    outWriter =
-                            new FileWriter(options.feOpts.outputDir + resultFile + ".cpp");
-                    outWriter.write(ccode);
-                    outWriter.flush();
-                    outWriter.close();
+                writeCode(pprog, new NodesToSuperH(resultFile),
+                        options.feOpts.outputDir + resultFile + ".h");
+                writeCode(pprog, new NodesToSuperCpp(varGen, resultFile),
+                        options.feOpts.outputDir + resultFile + ".cpp");
+                if (new ContainsCudaCode().run(prog)) {
+                    String cucode =
+                            (String) prog.accept(new NodesToCUDA(varGen,
+                                    options.feOpts.outputDir + resultFile + ".cu",
+                                    tprintPyStyle));
+                    printDebug("CUDA code", cucode);
                 }
                 if (options.feOpts.outputTest) {
-                    String testcode =
-                            (String) pprog.accept(new NodesToSuperCTest(resultFile));
                     final String outputFname =
                             options.feOpts.outputDir + resultFile + "_test.cpp";
-                    Writer outWriter = new FileWriter(outputFname);
-                    outWriter.write(testcode);
-                    outWriter.flush();
-                    outWriter.close();
+                    writeCode(pprog, new NodesToSuperCTest(resultFile), outputFname);
                     writeRunScript(options.feOpts.outputDir + "script", resultFile,
                             resultFile + "_test.cpp\n");
                     printNote("Wrote test harness to", outputFname);
@@ -100,6 +88,33 @@ public class OutputCCode extends MetaStage {
         return prog;
     }
 
+    /**
+     * Generates the code for prog into name.part as it goes, and renames that to name
+     * once it is complete, so a failed generation leaves no truncated file behind.
+     */
+    void writeCode(Program prog, NodesToJava gen, String name) throws IOException {
+        File file = new File(name);
+        File tmp = new File(name + ".part");
+        boolean written = false;
+        try {
+            Writer outWriter = new BufferedWriter(new FileWriter(tmp));
+            try {
+                gen.writeProgram(prog, outWriter);
+            } finally {
+                outWriter.close();
+            }
+            // renameTo doesn't replace an existing file on every platform
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException("could not rename " + tmp + " to " + file);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                tmp.delete();
+            }
+        }
+    }
+
     void writeRunScript(String name, String resultFile, String drivername)
             throws IOException
     {
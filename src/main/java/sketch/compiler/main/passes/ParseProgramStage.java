@@ -36,9 +36,13 @@ public class ParseProgramStage extends MetaStage {
         boolean useCpp = true;
         List<String> cppDefs = Arrays.asList(options.feOpts.def);
         Set<Directive> pragmas = new HashSet<Directive>();
+        // shared by all input files, so a header they have in common is parsed (and its
+        // packages added) only once
+        Set<String> handledIncludes = new HashSet<String>();
 
         for (String inputFile : inputFiles) {
-            StreamItParser parser = new StreamItParser(inputFile, useCpp, cppDefs);
+            StreamItParser parser =
+                    new StreamItParser(inputFile, handledIncludes, useCpp, cppDefs);
             Program pprog = parser.parse();
             if (pprog == null)
                 return null;
@@ -2,10 +2,15 @@ package sketch.compiler.main.seq;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Vector;
 
+import sketch.compiler.ast.core.FEReplacer;
 import sketch.compiler.ast.core.FEVisitor;
+import sketch.compiler.ast.core.FusedPasses;
 import sketch.compiler.ast.core.Program;
+import sketch.compiler.main.PhaseTelemetry;
+import sketch.compiler.main.PhaseTelemetry.Phase;
 import sketch.compiler.passes.annotations.CompilerPassDeps;
 import sketch.util.datastructures.HashmapList;
 
@@ -47,9 +52,33 @@ public abstract class CompilerStage {
         if (sketch.options.debugOpts.printPasses) {
             printDebug("Running stage", name);
         }
+        Phase stage = PhaseTelemetry.begin("stage", name);
+        Program result = null;
+        try {
+            result = postRun(runPasses(prog));
+        } finally {
+            PhaseTelemetry.end(stage, result);
+        }
+        return result;
+    }
+
+    protected Program runPasses(Program prog) {
         generateDeps();
         assert linearizedStages.size() == passes.size();
-        for (FEVisitor pass : linearizedStages) {
+        for (int i = 0; i < linearizedStages.size(); i++) {
+            FEVisitor pass = linearizedStages.get(i);
+            // a run of function-local passes goes over the program in one walk
+            int end = i + 1;
+            while (end < linearizedStages.size() && isFusable(linearizedStages.get(end - 1)) &&
+                    isFusable(linearizedStages.get(end)))
+            {
+                end++;
+            }
+            if (end - i > 1) {
+                prog = runFused(prog, linearizedStages.subList(i, end));
+                i = end - 1;
+                continue;
+            }
             String passName = pass.getClass().getSimpleName();
             if (sketch.options.debugOpts.printPasses) {
                 printDebug("   Running visitor", pass.getClass().getSimpleName());
@@ -62,14 +91,52 @@ public abstract class CompilerStage {
             {
                 prog.debugDump("Before visitor " + pass.getClass().getSimpleName());
             }
-            prog = (Program) prog.accept(pass);
+            Phase phase = PhaseTelemetry.begin("pass", passName);
+            Program result = null;
+            try {
+                result = (Program) prog.accept(pass);
+            } finally {
+                PhaseTelemetry.end(phase, result);
+            }
+            prog = result;
             if (passInfo.debug() || sketch.options.debugOpts.dumpAfter.contains(passName))
             {
                 prog.debugDump("After visitor " + pass.getClass().getSimpleName());
             }
             sketch.runClasses.add(pass.getClass());
         }
-        prog = postRun(prog);
+        return prog;
+    }
+
+    /** whether a pass may be run fused with its neighbours, and isn't being dumped */
+    protected boolean isFusable(FEVisitor pass) {
+        String passName = pass.getClass().getSimpleName();
+        return FusedPasses.isFusable(pass) && !getPassInfo(pass).debug() &&
+                !sketch.options.debugOpts.dumpBefore.contains(passName) &&
+                !sketch.options.debugOpts.dumpAfter.contains(passName);
+    }
+
+    protected Program runFused(Program prog, List<FEVisitor> run) {
+        FEReplacer[] fused = new FEReplacer[run.size()];
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < fused.length; i++) {
+            fused[i] = (FEReplacer) run.get(i);
+            name.append(i == 0 ? "" : "+").append(fused[i].getClass().getSimpleName());
+        }
+        if (sketch.options.debugOpts.printPasses) {
+            printDebug("   Running fused visitors", name);
+        }
+        Phase phase = PhaseTelemetry.begin("pass", name.toString());
+        Program result = null;
+        try {
+            result = (Program) prog.accept(new FusedPasses(fused));
+        } finally {
+            PhaseTelemetry.end(phase, result);
+        }
+        prog = result;
+        for (FEReplacer pass : fused) {
+            sketch.runClasses.add(pass.getClass());
+        }
         return prog;
     }
 
@@ -17,6 +17,7 @@
 package sketch.compiler.main.seq;
 import static sketch.util.Misc.nonnull;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
@@ -50,6 +51,8 @@ import sketch.compiler.codegenerators.OutputHoleFunc;
 import sketch.compiler.dataflow.recursionCtrl.AdvancedRControl;
 import sketch.compiler.dataflow.recursionCtrl.DelayedInlineRControl;
 import sketch.compiler.dataflow.recursionCtrl.RecursionControl;
+import sketch.compiler.main.PhaseTelemetry;
+import sketch.compiler.main.PhaseTelemetry.Phase;
 import sketch.compiler.main.PlatformLocalization;
 import sketch.compiler.main.cmdline.SketchOptions;
 import sketch.compiler.main.other.ErrorHandling;
@@ -122,7 +125,7 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
     public RecursionControl visibleRControl (Program p) {
 		// return new BaseRControl(params.inlineAmt);
         return new AdvancedRControl(options.bndOpts.branchAmnt,
-                options.bndOpts.inlineAmnt, true, p);
+                options.bndOpts.inlineAmnt, true, options.bndOpts.outlineAmnt, p);
 	}
 
 	/**
@@ -306,7 +309,12 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
                 solver.activateTracing();
             }
             backendParameters();
-            solver.partialEvalAndSolve(sketchProg.result);
+            Phase phase = PhaseTelemetry.begin("stage", "partialEvalAndSolve");
+            try {
+                solver.partialEvalAndSolve(sketchProg.result);
+            } finally {
+                PhaseTelemetry.end(phase);
+            }
 
 
             return new SynthesisResult(sketchProg, solver.getOracle(),
@@ -497,27 +505,38 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
 
 
     public Program preprocAndSemanticCheck(Program prog) {
+        Phase phase = PhaseTelemetry.begin("stage", "preprocAndSemanticCheck");
+        Program result = null;
+        try {
+            result = preprocAndSemanticCheckPasses(prog);
+        } finally {
+            PhaseTelemetry.end(phase, result);
+        }
+        return nonnull(result);
+    }
+
+    protected Program preprocAndSemanticCheckPasses(Program prog) {
         prog =
-                (Program) prog.accept(new CreateHarnesses(varGen,
+                runPass(prog, new CreateHarnesses(varGen,
                         !options.solverOpts.unoptimized, options.bndOpts.arrSize,
                         options.bndOpts.srcTupleDepth));
         // prog.debugDump();
 
-        prog = (Program) prog.accept(new ConstantReplacer(null));
+        prog = runPass(prog, new ConstantReplacer(null));
 
 
-        prog = (Program) prog.accept(new MinimizeFcnCall());
+        prog = runPass(prog, new MinimizeFcnCall());
 
-        prog = (Program) prog.accept(new SpmdbarrierCall());
+        prog = runPass(prog, new SpmdbarrierCall());
 
-        prog = (Program) prog.accept(new PidReplacer());
+        prog = runPass(prog, new PidReplacer());
 
-		prog = (Program) prog.accept(new ExtractComplexLoopConditions(varGen));
+		prog = runPass(prog, new ExtractComplexLoopConditions(varGen));
 
-		prog = (Program) prog.accept(new ExpressionCastingReplacer());
+		prog = runPass(prog, new ExpressionCastingReplacer());
 
 
-		prog = (Program) prog.accept(new LocalVariablesReplacer(varGen));
+		prog = runPass(prog, new LocalVariablesReplacer(varGen));
 
         
         // prog.debugDump("********************************************* Before
@@ -526,9 +545,9 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
 
 		// These three passes need to be integrated into the Bidirectional
 		// framework.
-		prog = (Program) prog.accept(new ExpandRepeatCases());
-		prog = (Program) prog.accept(new EliminateListOfFieldsMacro());
-		prog = (Program) prog.accept(new EliminateEmptyArrayLen());
+		prog = runPass(prog, new ExpandRepeatCases());
+		prog = runPass(prog, new EliminateListOfFieldsMacro());
+		prog = runPass(prog, new EliminateEmptyArrayLen());
 
 		BidirectionalAnalysis bda = new BidirectionalAnalysis(varGen);
 		TypeCheck tchk = new TypeCheck();
@@ -542,18 +561,25 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
 		sketch.compiler.passes.bidirectional.RemoveFunctionParameters rfp = new sketch.compiler.passes.bidirectional.RemoveFunctionParameters();
 		bda.addPass(rfp);
 		bda.addPostPass(rfp.getPostPass());
-		prog = bda.doProgram(prog);
-		prog = (Program) prog.accept(new ThreadClosure(rfp, ifrepl));
-		prog = (Program) prog.accept(lamelim.getCleanup());
+		Phase bdaPhase = PhaseTelemetry.begin("pass", "BidirectionalAnalysis");
+		Program bdaResult = null;
+		try {
+			bdaResult = bda.doProgram(prog);
+		} finally {
+			PhaseTelemetry.end(bdaPhase, bdaResult);
+		}
+		prog = bdaResult;
+		prog = runPass(prog, new ThreadClosure(rfp, ifrepl));
+		prog = runPass(prog, lamelim.getCleanup());
 		if (!tchk.good) {
 			throw new ProgramParseException("Semantic check failed");
         }
 
 
 
-        prog = (Program) prog.accept(new EliminateTripleEquals(varGen, options.bndOpts.eqDepth));
+        prog = runPass(prog, new EliminateTripleEquals(varGen, options.bndOpts.eqDepth));
 
-        prog = (Program) prog.accept(new MinimizeFcnCall());
+        prog = runPass(prog, new MinimizeFcnCall());
 
         // prog = (getBeforeSemanticCheckStage()).run(prog);
 
@@ -561,14 +587,25 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
             ParallelCheckOption parallelCheck =
                     isParallel() ? ParallelCheckOption.PARALLEL
                             : ParallelCheckOption.SERIAL;
-            (new SemanticCheckPass(parallelCheck, true)).visitProgram(prog);
+            runPass(prog, new SemanticCheckPass(parallelCheck, true));
         }
 
         prog = preprocessProgram(prog, true); // perform prereq
-
-        return nonnull(prog);
+        return prog;
 	}
 
+    /** Runs one pass over the whole program, recording it in the phase telemetry. */
+    protected Program runPass(Program prog, FEVisitor pass) {
+        Phase phase = PhaseTelemetry.begin("pass", pass.getClass().getSimpleName());
+        Program result = null;
+        try {
+            result = (Program) prog.accept(pass);
+        } finally {
+            PhaseTelemetry.end(phase, result);
+        }
+        return result;
+    }
+
 	@CompilerPassDeps(runsBefore = {}, runsAfter = {})
     public class SemanticCheckPass extends FEReplacer {
         private final ParallelCheckOption checkopt;
@@ -596,6 +633,26 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
     }
 
     public void run() {
+        if (options.debugOpts.telemetry == null) {
+            runPipeline();
+            return;
+        }
+        PhaseTelemetry.enable();
+        try {
+            runPipeline();
+        } finally {
+            File out = new File(options.debugOpts.telemetry);
+            try {
+                PhaseTelemetry.get().writeJson(out);
+                this.log(1, "Wrote phase telemetry to " + out);
+            } catch (IOException e) {
+                printError("Couldn't write phase telemetry to " + out + ": " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    protected void runPipeline() {
         this.log(1, "Benchmark = " + this.benchmarkName());
         Program prog = null;
         try {
@@ -660,7 +717,12 @@ public class SequentialSketchMain extends CommonSketchMain implements Runnable
 				visibleRControl(finalCleaned))).visitProgram(substituted);
 
 
-		generateCode(substitutedCleaned);
+		Phase codegen = PhaseTelemetry.begin("stage", "generateCode");
+		try {
+			generateCode(substitutedCleaned);
+		} finally {
+			PhaseTelemetry.end(codegen);
+		}
         this.log(1, "[SKETCH] DONE");
     }
 
@@ -1,5 +1,6 @@
 package sketch.compiler.parallelEncoder;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -51,6 +52,12 @@ public class LockPreprocessing extends SymbolTableVisitor {
 	public Object visitPackage(Package spec)
     {
 		Package sspec = (Package)super.visitPackage(spec);
+		if (sspec == spec) {
+			// an unchanged package comes back as is; don't add to the input's lists
+			sspec = new Package(spec, spec.getName(), spec.getStructs(),
+					new ArrayList<FieldDecl>(spec.getVars()),
+					new ArrayList<Function>(spec.getFuncs()), spec.getSpAsserts());
+		}
 
 		sspec.getVars().add(new FieldDecl(spec, TypePrimitive.inttype, NTYPES.getName(), new ExprConstInt(lockedTypes.size())));
         sspec.getFuncs().add(
@@ -24,4 +24,10 @@ public @interface CompilerPassDeps {
     Class<? extends FEVisitor>[] runsBefore();
     
     boolean debug() default false;
+
+    /**
+     * the pass looks at one function at a time and keeps no state from one function to
+     * the next, so it may be run together with other such passes in a FusedPasses
+     */
+    boolean functionLocal() default false;
 }
@@ -6,5 +6,5 @@ package sketch.compiler.passes.cuda;
 import sketch.compiler.passes.annotations.CompilerPassDeps;
 import sketch.compiler.passes.lowering.FlattenStmtBlocks;
 
-@CompilerPassDeps(runsAfter = {}, runsBefore = {})
+@CompilerPassDeps(runsAfter = {}, runsBefore = {}, functionLocal = true)
 public class FlattenStmtBlocks2 extends FlattenStmtBlocks { }
\ No newline at end of file
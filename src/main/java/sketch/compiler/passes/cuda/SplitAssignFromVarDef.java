@@ -11,7 +11,8 @@ import sketch.compiler.ast.core.stmts.StmtAssign;
 import sketch.compiler.ast.core.stmts.StmtVarDecl;
 import sketch.compiler.passes.annotations.CompilerPassDeps;
 
-@CompilerPassDeps(runsBefore = { }, runsAfter = { FlattenStmtBlocks2.class })
+@CompilerPassDeps(runsBefore = { }, runsAfter = { FlattenStmtBlocks2.class },
+        functionLocal = true)
 public class SplitAssignFromVarDef extends FEReplacer {
     @Override
     public Object visitStmtVarDecl(StmtVarDecl stmt) {
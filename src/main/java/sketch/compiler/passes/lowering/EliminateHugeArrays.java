@@ -4,7 +4,9 @@ import sketch.compiler.ast.core.FEReplacer;
 import sketch.compiler.ast.core.exprs.Expression;
 import sketch.compiler.ast.core.typs.Type;
 import sketch.compiler.ast.core.typs.TypeArray;
+import sketch.compiler.passes.annotations.CompilerPassDeps;
 
+@CompilerPassDeps(runsBefore = {}, runsAfter = {}, functionLocal = true)
 public class EliminateHugeArrays extends FEReplacer {
 
     @Override
@@ -5,7 +5,9 @@ import sketch.compiler.ast.core.exprs.ExprArrayRange.RangeLen;
 import sketch.compiler.ast.core.exprs.ExprBinary;
 import sketch.compiler.ast.core.exprs.Expression;
 import sketch.compiler.ast.core.stmts.StmtAssert;
+import sketch.compiler.passes.annotations.CompilerPassDeps;
 
+@CompilerPassDeps(runsBefore = {}, runsAfter = {}, functionLocal = true)
 public class EliminateNestedArrAcc extends FEReplacer {
 
     boolean bcheck;
@@ -6,6 +6,7 @@ import sketch.compiler.ast.core.FEReplacer;
 import sketch.compiler.ast.core.stmts.Statement;
 import sketch.compiler.ast.core.stmts.StmtAtomicBlock;
 import sketch.compiler.ast.core.stmts.StmtBlock;
+import sketch.compiler.passes.annotations.CompilerPassDeps;
 
 
 /**
@@ -20,6 +21,7 @@ import sketch.compiler.ast.core.stmts.StmtBlock;
  * @author asolar
  *
  */
+@CompilerPassDeps(runsBefore = {}, runsAfter = {}, functionLocal = true)
 public class FlattenStmtBlocks extends FEReplacer {
 
 	void addStmts(List<Statement> oldS, List<Statement> newS){
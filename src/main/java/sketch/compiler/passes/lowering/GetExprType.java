@@ -77,11 +77,46 @@ public class GetExprType extends FENullVisitor
      * they will usually get type 'int'. */
     private Type nullType;
     int i = 0;
+    /** types already worked out, by expression identity; null if not memoizing */
+    private Map<Expression, Type> memo = null;
+    /** whether the expression being typed reads a type that is set on the node later */
+    private boolean unstable = false;
 
     public NameResolver getNres() {
         return nres;
     }
 
+    /**
+     * Reuses and records the types of subexpressions in memo. The caller must only
+     * share memo between visitors whose symbol table, name resolver and null type say
+     * the same thing about the expressions in it.
+     */
+    public GetExprType setMemo(Map<Expression, Type> memo) {
+        this.memo = memo;
+        return this;
+    }
+
+    /** The type of a subexpression, from the memo if it is there. */
+    protected Type typeOf(Expression exp) {
+        if (memo == null) {
+            return (Type) exp.accept(this);
+        }
+        Type t = memo.get(exp);
+        if (t != null) {
+            return t;
+        }
+        boolean outer = unstable;
+        unstable = false;
+        t = (Type) exp.accept(this);
+        // holes, null pointers, float constants and the like take their types from
+        // fields of the node or from the context, which may still change
+        if (t != null && !unstable) {
+            memo.put(exp, t);
+        }
+        unstable |= outer;
+        return t;
+    }
+
     public GetExprType(SymbolTable symTab,
  NameResolver nres) {
         this(symTab, nres, TypePrimitive.nulltype);
@@ -96,8 +131,8 @@ public class GetExprType extends FENullVisitor
     }
 
     public Object visitExprAlt (ExprAlt ea) {
-    	Type t1 = (Type) ea.getThis().accept(this);
-    	Type t2 = (Type) ea.getThat().accept(this);
+    	Type t1 = typeOf(ea.getThis());
+    	Type t2 = typeOf(ea.getThat());
         if (t1 == null || t2 == null) {
             return null;
         }
@@ -108,7 +143,7 @@ public class GetExprType extends FENullVisitor
 
 
     public Object visitExprArrayRange(ExprArrayRange exp) {    	
-    	Type base = (Type)exp.getBase().accept(this);
+    	Type base = typeOf(exp.getBase());
         if (base == null) {
             return null;
         }
@@ -117,7 +152,7 @@ public class GetExprType extends FENullVisitor
             return base;
 		Expression expr = null;
             RangeLen range=exp.getSelection();
-            Type start = (Type)range.start().accept(this);
+            Type start = typeOf(range.start());
             
             expr = range.getLenExpression();
             
@@ -149,10 +184,10 @@ public class GetExprType extends FENullVisitor
             base = TypePrimitive.bottomtype;
     	} else {
     		// otherwise, take promotion over all elements declared
-    		base = (Type)((Expression)elems.get(0)).accept(this);
+    		base = typeOf((Expression) elems.get(0));
 
     		for (int i=1; i<elems.size(); i++) {
-    			Type t = (Type)((Expression)elems.get(i)).accept(this);
+    			Type t = typeOf((Expression) elems.get(i));
                 if (base == null) {
                     throw new ExceptionAtNode("Inconsistent types in array initializer",
                             exp);
@@ -252,7 +287,7 @@ public class GetExprType extends FENullVisitor
     		}
     	}
 
-    	Type t = (Type) ecs.getObj ().accept (this);
+    	Type t = typeOf(ecs.getObj());
     	ecs.assertTrue (null != t && t.isStruct (),
 			"field selection of non-struct");
 
@@ -265,7 +300,7 @@ public class GetExprType extends FENullVisitor
     }
 
     public Object visitExprChoiceUnary (ExprChoiceUnary ecu) {
-    	Type t = (Type) ecu.getExpr().accept(this);
+    	Type t = typeOf(ecu.getExpr());
 
     	if (t.equals(TypePrimitive.bittype)) {
     		if (0 != (ecu.getOps () & ExprChoiceUnary.NOT))
@@ -279,6 +314,7 @@ public class GetExprType extends FENullVisitor
 
 
     public Object visitExprStar(ExprStar exp){
+        unstable = true;
     	if(exp.getType() != null  ){
     		return exp.getType();
     	}else{
@@ -290,6 +326,7 @@ public class GetExprType extends FENullVisitor
 	 * Returns the type of the local variable expression based on the context.
 	 */
 	public Object visitExprLocalVariables(ExprLocalVariables exprLocalVariables) {
+        unstable = true;
 		// If the expression already has a type
 		if (exprLocalVariables.getType() != null) {
 			// Return that type
@@ -301,6 +338,7 @@ public class GetExprType extends FENullVisitor
 	}
 
     public Object visitExprNullPtr(ExprNullPtr exp){
+        unstable = true;
     	return nullType;
     }
 
@@ -311,6 +349,7 @@ public class GetExprType extends FENullVisitor
 
     public Object visitExprConstFloat(ExprConstFloat exp)
     {
+        unstable = true;
         if (exp.getType() == ExprConstFloat.FloatType.Double) {
             return TypePrimitive.doubletype;
         }
@@ -334,7 +373,7 @@ public class GetExprType extends FENullVisitor
     public Object visitExprTupleAccess(ExprTupleAccess exp) {
 		final ExprTupleAccess fexp = exp;
 
-        Type base = (Type) exp.getBase().accept(this);
+        Type base = typeOf(exp.getBase());
 
         if (!(base instanceof TypeStructRef))
             return null;
@@ -358,7 +397,7 @@ public class GetExprType extends FENullVisitor
     public Object visitExprField(ExprField exp)
     {
         final ExprField fexp = exp;
-        Type base = (Type)exp.getLeft().accept(this);
+        Type base = typeOf(exp.getLeft());
         StructDef ts = null;
         if (base instanceof TypeStructRef)
         {
@@ -377,6 +416,7 @@ public class GetExprType extends FENullVisitor
 
         // ADT
         if (exp.isHole()) {
+            unstable = true;
             return new NotYetComputedType();
         }
         StructDef current = ts;
@@ -454,7 +494,7 @@ public class GetExprType extends FENullVisitor
                 } else {
                     List<Type> lt = new ArrayList<Type>();
                     for (Expression ep : exp.getParams()) {
-                        lt.add((Type) ep.accept(this));
+                        lt.add(typeOf(ep));
                     }
                     tr = SymbolTableVisitor.getRenaming(fn, lt, nres, null);
                 }
@@ -488,15 +528,16 @@ public class GetExprType extends FENullVisitor
 
     // TODO: deal with packages
     public Object visitExprADTHole(ExprADTHole exp) {
+        unstable = true;
         return new NotYetComputedType();
     }
 
     public Object visitExprParen (ExprParen ep) {
-    	return ep.getExpr ().accept (this);
+    	return typeOf(ep.getExpr());
     }
 
     public Object visitExprRegen (ExprRegen er) {
-    	return er.getExpr ().accept (this);
+    	return typeOf(er.getExpr());
     }
 
 
@@ -505,8 +546,8 @@ public class GetExprType extends FENullVisitor
         i++;
         // Do type unification on the two sides.
         // (Might not want to blindly assert ?:.)
-        Type tb = (Type)exp.getB().accept(this);
-        Type tc = (Type)exp.getC().accept(this);
+        Type tb = typeOf(exp.getB());
+        Type tc = typeOf(exp.getC());
         Type lub;
         if (tb == null) {
             return tc;
@@ -535,7 +576,7 @@ public class GetExprType extends FENullVisitor
     {
         // A little more solid ground here: the type of -foo and !foo
         // will be the same as type of foo, except for bits...
-	Type t = (Type)exp.getExpr().accept(this);
+	Type t = typeOf(exp.getExpr());
         if (t == null) {
             return null;
         }
@@ -561,6 +602,7 @@ public class GetExprType extends FENullVisitor
 
 
     public Object visitExprNew(ExprNew expNew){
+        unstable = true;
         Type t = expNew.getTypeToConstruct();
         if (t == null)
             return new NotYetComputedType();
@@ -594,12 +636,12 @@ public class GetExprType extends FENullVisitor
 
     @Override
     public Object visitExprNamedParam(ExprNamedParam exprNamedParam) {
-        return exprNamedParam.getExpr().accept(this);
+        return typeOf(exprNamedParam.getExpr());
     }
 
 	private Type binopType (int op, Expression left, Expression right) {
-		Type tl = (Type) left.accept(this);
-    	Type tr = (Type) right.accept(this);
+		Type tl = typeOf(left);
+    	Type tr = typeOf(right);
         if (tl == null || tr == null) {
             return null;
         }
@@ -632,7 +674,7 @@ public class GetExprType extends FENullVisitor
         // promote to, otherwise.
 
         if( tr == null){
-        	right.accept(this);
+        	typeOf(right);
         }
 
         Type rv = tl.leastCommonPromotion(tr, nres);
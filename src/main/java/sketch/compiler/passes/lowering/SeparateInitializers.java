@@ -45,7 +45,8 @@ import sketch.compiler.passes.annotations.CompilerPassDeps;
  * @author  David Maze &lt;dmaze@cag.lcs.mit.edu&gt;
  * @version $Id$
  */
-@CompilerPassDeps(runsBefore = {}, runsAfter = { EliminateComplexForLoops.class })
+@CompilerPassDeps(runsBefore = {}, runsAfter = { EliminateComplexForLoops.class },
+        functionLocal = true)
 public class SeparateInitializers extends FEReplacer
 {
     public Object visitStmtVarDecl(StmtVarDecl stmt)
@@ -19,6 +19,7 @@ package sketch.compiler.passes.lowering;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -257,10 +258,39 @@ public class SymbolTableVisitor extends FEReplacer
             return TypePrimitive.voidtype;
         }
 
-        // To think about: should we cache GetExprType objects?
         GetExprType get = new GetExprType(symtab, this.nres, nullType);
-        Type type = (Type)expr.accept(get);
-        return type;
+        return get.setMemo(typeMemo()).typeOf(expr);
+    }
+
+    /**
+     * Types of the expressions looked at so far, by identity. Passes ask for the types
+     * of an expression and of its parts over and over, which costs time quadratic in the
+     * depth of the expression without this. The memo holds while the symbol table, the
+     * name resolver and everything registered in them stay the same; it is dropped as
+     * soon as any of them changes, e.g. on entering a block or declaring a variable.
+     */
+    private Map<Expression, Type> typeMemo;
+    private SymbolTable memoSymtab;
+    private long memoStamp;
+    private NameResolver memoNres;
+    private int memoNresCount;
+    private Package memoPkg;
+
+    private Map<Expression, Type> typeMemo() {
+        long stamp = symtab.stamp();
+        int nresCount = nres == null ? 0 : nres.modCount();
+        Package pkg = nres == null ? null : nres.curPkg();
+        if (typeMemo == null || memoSymtab != symtab || memoStamp != stamp ||
+                memoNres != nres || memoNresCount != nresCount || memoPkg != pkg)
+        {
+            typeMemo = new IdentityHashMap<Expression, Type>();
+            memoSymtab = symtab;
+            memoStamp = stamp;
+            memoNres = nres;
+            memoNresCount = nresCount;
+            memoPkg = pkg;
+        }
+        return typeMemo;
     }
 
     public boolean isGlobal(ExprVar ev){
@@ -0,0 +1,133 @@
+package sketch.compiler.solvers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-degree trial timings of the parallel strategies, saved between runs. There is
+ * one file per sketch fingerprint, so a later run of the same sketch with the same
+ * solver options can start from what earlier runs measured instead of sampling every
+ * degree again.
+ * <p>
+ * Each line of the file is one trial: the degree, its elapsed time in milliseconds
+ * and the probability estimate the strategies divide by. Only the most recent samples
+ * of each degree are kept.
+ */
+public class DegreePriors {
+    protected static final String SUFFIX = ".priors";
+
+    protected final File file;
+    protected final int maxSamples;
+    /** degree -> trials, oldest first */
+    protected final Map<Integer, List<SATSolutionStatistics>> samples =
+            new TreeMap<Integer, List<SATSolutionStatistics>>();
+
+    public DegreePriors(File dir, String fingerprint, int maxSamples) {
+        this.file = new File(dir, fingerprint + SUFFIX);
+        this.maxSamples = Math.max(1, maxSamples);
+    }
+
+    /**
+     * Reads the samples of earlier runs.
+     *
+     * @return degree -> trials; empty if there's nothing saved for this sketch
+     */
+    public synchronized Map<Integer, List<SATSolutionStatistics>> load() {
+        samples.clear();
+        if (file.isFile()) {
+            try {
+                BufferedReader r = new BufferedReader(new FileReader(file));
+                try {
+                    String line;
+                    while ((line = r.readLine()) != null) {
+                        parseLine(line.trim());
+                    }
+                } finally {
+                    r.close();
+                }
+            } catch (IOException e) {
+                samples.clear();
+            }
+        }
+        Map<Integer, List<SATSolutionStatistics>> res =
+                new TreeMap<Integer, List<SATSolutionStatistics>>();
+        for (Map.Entry<Integer, List<SATSolutionStatistics>> e : samples.entrySet()) {
+            res.put(e.getKey(), new ArrayList<SATSolutionStatistics>(e.getValue()));
+        }
+        return res;
+    }
+
+    protected void parseLine(String line) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            return;
+        }
+        String[] parts = line.split("\\s+");
+        if (parts.length != 3) {
+            return;
+        }
+        try {
+            SATSolutionStatistics stat = new SATSolutionStatistics();
+            stat.elapsedTimeMs = Long.parseLong(parts[1]);
+            stat.probability = Double.parseDouble(parts[2]);
+            add(Integer.parseInt(parts[0]), stat);
+        } catch (NumberFormatException e) {
+            // skip lines we can't read
+        }
+    }
+
+    protected void add(int degree, SATSolutionStatistics stat) {
+        List<SATSolutionStatistics> l = samples.get(degree);
+        if (l == null) {
+            l = new ArrayList<SATSolutionStatistics>();
+            samples.put(degree, l);
+        }
+        l.add(stat);
+        if (l.size() > maxSamples) {
+            l.remove(0);
+        }
+    }
+
+    /** Adds one finished trial; it is written out by the next save(). */
+    public synchronized void record(int degree, SATSolutionStatistics stat) {
+        if (stat == null || stat.probability <= 0) {
+            return;
+        }
+        add(degree, stat);
+    }
+
+    public synchronized void save() {
+        File dir = file.getParentFile();
+        if (!(dir.mkdirs() || dir.isDirectory())) {
+            return;
+        }
+        File tmp = new File(dir, file.getName() + ".part");
+        try {
+            PrintWriter w = new PrintWriter(new FileWriter(tmp));
+            try {
+                w.println("# degree elapsed-ms probability");
+                for (Map.Entry<Integer, List<SATSolutionStatistics>> e : samples.entrySet()) {
+                    for (SATSolutionStatistics stat : e.getValue()) {
+                        w.println(e.getKey() + " " + stat.elapsedTimeMs() + " " +
+                                stat.probability);
+                    }
+                }
+            } finally {
+                w.close();
+            }
+            // rename, so a concurrent run never reads half a file
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+            tmp.delete();
+        }
+    }
+}
@@ -4,7 +4,9 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import org.apache.commons.io.FileUtils;
@@ -14,7 +16,10 @@ import static sketch.util.DebugOut.printDebug;
 
 import sketch.compiler.ast.core.Program;
 import sketch.compiler.ast.core.TempVarGen;
+import sketch.compiler.cmdline.BoundOptions;
 import sketch.compiler.dataflow.recursionCtrl.RecursionControl;
+import sketch.compiler.main.PhaseTelemetry;
+import sketch.compiler.main.PhaseTelemetry.Phase;
 import sketch.compiler.main.PlatformLocalization;
 import sketch.compiler.main.PlatformLocalization.ResolveFromFileAndPATH;
 import sketch.compiler.main.cmdline.SketchOptions;
@@ -24,8 +29,8 @@ import sketch.compiler.passes.structure.HasMinimize;
 import sketch.compiler.solvers.constructs.RandomValueOracle;
 import sketch.compiler.solvers.constructs.StaticHoleTracker;
 import sketch.compiler.solvers.constructs.ValueOracle;
-import sketch.util.Misc;
 import sketch.util.NullStream;
+import sketch.util.ProcessRegistry;
 import sketch.util.ProcessStatus;
 import sketch.util.SynchronousTimedProcess;
 import sketch.util.datastructures.IntRange;
@@ -44,6 +49,13 @@ public class SATBackend {
     public final SketchOptions options;
     protected boolean minimize = false;
 
+    /** file name the solver reads when the program is piped into its stdin */
+    protected static final String STDIN_PATH = "/dev/stdin";
+    /** program being streamed to the solver; null when it reads the temporary file */
+    private Program streamedProg = null;
+    /** warm solver processes shared by all trials of one solve; null unless --slv-pool-size */
+    protected SolverProcessPool solverPool = null;
+
     public SATBackend(SketchOptions options,
             RecursionControl rcontrol, TempVarGen varGen)
     {
@@ -120,7 +132,11 @@ public class SATBackend {
         commandLineOptions.add("-o");
         commandLineOptions.add(options.getSolutionsString(i));
         commandLineOptions.addAll(Arrays.asList(additional));
-        commandLineOptions.add(options.getTmpSketchFilename());
+        if (streamedProg != null) {
+            commandLineOptions.add(STDIN_PATH);
+        } else {
+            commandLineOptions.add(options.getTmpSketchFilename());
+        }
 
         String[] result = commandLineOptions.toArray(new String[0]);
         if (options.debugOpts.verbosity > 4) {
@@ -131,6 +147,15 @@ public class SATBackend {
     }
 
     protected void partialEval(Program prog, OutputStream outStream) {
+        partialEval(prog, outStream, PhaseTelemetry.current());
+    }
+
+    /**
+     * @param parentPhase
+     *            telemetry phase to record the evaluation under, since it may run on a
+     *            thread of its own
+     */
+    protected void partialEval(Program prog, OutputStream outStream, Phase parentPhase) {
         PrintStream pstream = new PrintStream(outStream, false);
         sketch.compiler.dataflow.nodesToSB.ProduceBooleanFunctions partialEval =
                 new sketch.compiler.dataflow.nodesToSB.ProduceBooleanFunctions(varGen,
@@ -138,13 +163,38 @@ public class SATBackend {
                         pstream
                         // System.out
                         , options.bndOpts.unrollAmnt, options.bndOpts.arrSize , rcontrol, tracing);
+        if (options.solverOpts.compactNames) {
+            partialEval.useCompactNames();
+        }
+        if (options.solverOpts.shareNodes) {
+            partialEval.useSharedNodes();
+        }
+        if (options.solverOpts.pevalThreads > 0) {
+            partialEval.evaluateSeparately(options.solverOpts.pevalThreads);
+        }
         log("MAX LOOP UNROLLING = " + options.bndOpts.unrollAmnt);
         log("MAX FUNC INLINING  = " + options.bndOpts.inlineAmnt);
         
-        prog.accept(partialEval);
+        Phase phase = PhaseTelemetry.begin(parentPhase, "pass", "ProduceBooleanFunctions");
+        try {
+            prog.accept(partialEval);
 
-        pstream.flush();
+            pstream.flush();
+        } finally {
+            PhaseTelemetry.end(phase);
+        }
         log("After prog.accept(partialEval)");
+        if (options.solverOpts.compactNames) {
+            log("Interned " + partialEval.numInternedNames() + " variable names");
+        }
+        if (options.solverOpts.shareNodes) {
+            long distinct = partialEval.numDistinctNodes();
+            long reused = partialEval.numReusedNodes();
+            log("Shared " + partialEval.numSharedNodes() + " of " + distinct +
+                    " distinct expressions; " + reused + " repeats replaced (" +
+                    (distinct + reused == 0 ? 0 : 100 * reused / (distinct + reused)) +
+                    "% of compound expressions)");
+        }
     }
 
     public Program preprocess(Program prog) {
@@ -184,8 +234,19 @@ public class SATBackend {
             options.setSolFileIdx("");
         } else {
             options.cleanTemp();
-            writeProgramToBackendFormat(preprocess(prog));
-            worked = solve(oracle, minimize, options.solverOpts.timeout);
+            Program backendProg = preprocess(prog);
+            if (canStreamInput()) {
+                streamedProg = backendProg;
+            } else {
+                writeProgramToBackendFormat(backendProg);
+            }
+            Phase phase = PhaseTelemetry.begin("stage", "solve");
+            try {
+                worked = solveOrReuseCached();
+            } finally {
+                PhaseTelemetry.end(phase);
+                streamedProg = null;
+            }
         }
 
         if (!worked && !options.feOpts.forceCodegen) {
@@ -234,6 +295,94 @@ public class SATBackend {
         return worked;
     }
 
+    /**
+     * Runs solve(), unless the solution cache already holds the answer for the program
+     * just written out. New solutions are added to the cache.
+     */
+    protected boolean solveOrReuseCached() {
+        SolutionCache cache = streamedProg == null ? getSolutionCache() : null;
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey =
+                    cache.keyFor(new File(options.getTmpSketchFilename()),
+                            cacheKeySettings());
+        }
+        if (cacheKey != null &&
+                cache.lookup(cacheKey, new File(options.getSolutionsString(0))))
+        {
+            log(2, "Reusing cached solution " + cacheKey);
+            options.setSolFileIdx("");
+            lastSolveStats = new SATSolutionStatistics();
+            lastSolveStats.success = true;
+            lastSolveStats.out = "";
+            return true;
+        }
+
+        if (options.solverOpts.poolSize > 0 && streamedProg == null) {
+            solverPool =
+                    new SolverProcessPool(options, options.solverOpts.poolSize,
+                            options.solverOpts.poolJobs);
+        }
+        boolean worked;
+        try {
+            worked = solve(oracle, minimize, options.solverOpts.timeout);
+        } finally {
+            if (solverPool != null) {
+                solverPool.shutdown();
+                solverPool = null;
+            }
+            log(3, ProcessRegistry.get().toString());
+        }
+        if (worked && cacheKey != null) {
+            File[] solutions = options.getSolutionsFiles();
+            if (solutions.length == 1) {
+                cache.store(cacheKey, solutions[0]);
+            }
+        }
+        return worked;
+    }
+
+    /**
+     * Lets another backend, which solves on this one's behalf, run its trials on this
+     * backend's solver pool. The pool stays owned by this backend.
+     */
+    protected void lendSolverPool(SATBackend to) {
+        to.solverPool = solverPool;
+    }
+
+    /** @return null unless the solution cache is enabled */
+    protected SolutionCache getSolutionCache() {
+        if (!options.feOpts.solutionCache && options.feOpts.cacheDir == null) {
+            return null;
+        }
+        File dir;
+        if (options.feOpts.cacheDir != null) {
+            dir = new File(options.feOpts.cacheDir);
+        } else {
+            dir = options.persistentDir(".solution-cache");
+        }
+        return new SolutionCache(dir, options.feOpts.cacheMaxMb * 1024L * 1024L);
+    }
+
+    /**
+     * Everything besides the program text that can change the solution: the solver's
+     * command line options and the bounds the program was produced with.
+     */
+    protected List<Object> cacheKeySettings() {
+        List<Object> settings = new ArrayList<Object>(options.getBackendOptions());
+        settings.add("unroll=" + options.bndOpts.unrollAmnt);
+        settings.add("inline=" + options.bndOpts.inlineAmnt);
+        settings.add("arrsize=" + options.bndOpts.arrSize);
+        settings.add("cbits=" + options.bndOpts.cbits);
+        settings.add("incremental=" +
+                (options.bndOpts.incremental.isSet ? options.bndOpts.incremental.value
+                        : "off"));
+        settings.add("minimize=" + minimize);
+        settings.add("randdegree=" + options.solverOpts.randdegree + " " +
+                randdegrees);
+        return settings;
+    }
+
     protected boolean frontendMinimize(Program prog, File sketchOutputFile,
             File bestValueFile, boolean worked)
     {
@@ -301,6 +450,28 @@ public class SATBackend {
         }
     }
 
+    /**
+     * The program can only be piped into the solver if it is consumed exactly once, i.e.
+     * not by several parallel trials or several incremental bit widths.
+     */
+    protected boolean canStreamInput() {
+        if (!options.solverOpts.streamInput) {
+            return false;
+        }
+        if (options.solverOpts.parallel || options.bndOpts.incremental.isSet ||
+                options.debugOpts.checkBackInput != null || options.solverOpts.poolSize > 0)
+        {
+            log("Program consumed more than once; writing " +
+                    options.getTmpSketchFilename() + " instead of streaming");
+            return false;
+        }
+        if (!new File(STDIN_PATH).exists()) {
+            log(STDIN_PATH + " not available; writing the temporary file instead");
+            return false;
+        }
+        return true;
+    }
+
     public void writeProgramToBackendFormat(Program prog) {
         try {
             OutputStream outStream = null;
@@ -370,24 +541,7 @@ public class SATBackend {
 
         // minimize
         if (options.bndOpts.incremental.isSet) {
-            boolean isSolved = false;
-            int bits = 0;
-            int maxBits = options.bndOpts.incremental.value;
-            for (bits = 1; bits <= maxBits; ++bits) {
-                log("TRYING SIZE " + bits);
-                String[] commandLine = getBackendCommandline(fileIdx, cpus, backendOptions, "--bnd-cbits=" + bits);
-                ret = runSolver(commandLine, bits, timeoutMins);
-                if (ret != null && ret.success) {
-                    isSolved = true;
-                    break;
-                } else {
-                    log("Size " + bits + " is not enough");
-                }
-            }
-            if (isSolved) {
-                log("Succeded with " + bits + " bits for integers");
-                oracle.capStarSizes(bits);
-            }
+            ret = incrementalBitSearch(oracle, timeoutMins, fileIdx, cpus, backendOptions);
         }
         // default
         else {
@@ -406,6 +560,107 @@ public class SATBackend {
         return ret;
     }
 
+    /**
+     * Looks for a --bnd-cbits width that solves the sketch, in the order given by
+     * --bnd-inc-schedule. Every width tried is recorded in the returned statistics.
+     */
+    protected SATSolutionStatistics incrementalBitSearch(ValueOracle oracle,
+            float timeoutMins, int fileIdx, int cpus, Vector<String> backendOptions)
+    {
+        int maxBits = options.bndOpts.incremental.value;
+        BoundOptions.IncrementalSchedule schedule = options.bndOpts.incSchedule;
+        Map<Integer, Long> times = new LinkedHashMap<Integer, Long>();
+        // a later failed probe may clobber the solution file, so keep the best one aside
+        File solution = new File(options.getSolutionsString(fileIdx));
+        File bestSolution = new File(solution.getPath() + ".best");
+        SATSolutionStatistics last = null;
+        SATSolutionStatistics best = null;
+        int bestBits = -1;
+        // widths <= lo are known to fail
+        int lo = 0;
+        int bits = 1;
+        while (bits <= maxBits) {
+            last = tryBitWidth(bits, timeoutMins, fileIdx, cpus, backendOptions, times);
+            if (last.success) {
+                best = last;
+                bestBits = bits;
+                break;
+            }
+            log("Size " + bits + " is not enough");
+            lo = bits;
+            if (bits == maxBits) {
+                break;
+            }
+            if (schedule == BoundOptions.IncrementalSchedule.LINEAR) {
+                ++bits;
+            } else {
+                bits = Math.min(2 * bits, maxBits);
+            }
+        }
+        if (best != null && schedule == BoundOptions.IncrementalSchedule.BINARY &&
+                bestBits - lo > 1)
+        {
+            saveSolution(solution, bestSolution);
+            boolean bestOnDisk = true;
+            while (bestBits - lo > 1) {
+                int mid = (lo + bestBits) / 2;
+                last = tryBitWidth(mid, timeoutMins, fileIdx, cpus, backendOptions, times);
+                if (last.success) {
+                    best = last;
+                    bestBits = mid;
+                    bestOnDisk = true;
+                    saveSolution(solution, bestSolution);
+                } else {
+                    log("Size " + mid + " is not enough");
+                    lo = mid;
+                    bestOnDisk = false;
+                }
+            }
+            try {
+                if (!bestOnDisk) {
+                    FileUtils.copyFile(bestSolution, solution);
+                }
+            } catch (IOException e) {
+                throw new SketchSolverException("Could not restore solution", e);
+            } finally {
+                FileUtils.deleteQuietly(bestSolution);
+            }
+        }
+        SATSolutionStatistics ret = best != null ? best : last;
+        if (best != null) {
+            log("Succeded with " + bestBits + " bits for integers");
+            oracle.capStarSizes(bestBits);
+        }
+        if (ret != null) {
+            ret.widthTimesMs = times;
+            lastSolveStats = ret;
+            if (!options.solverOpts.parallel) {
+                log(2, "Stats for incremental search:\n" + ret);
+            }
+        }
+        return ret;
+    }
+
+    private static void saveSolution(File solution, File bestSolution) {
+        try {
+            FileUtils.copyFile(solution, bestSolution);
+        } catch (IOException e) {
+            throw new SketchSolverException("Could not save solution", e);
+        }
+    }
+
+    /** Runs the solver once with --bnd-cbits=bits and records how long it took. */
+    protected SATSolutionStatistics tryBitWidth(int bits, float timeoutMins, int fileIdx,
+            int cpus, Vector<String> backendOptions, Map<Integer, Long> times)
+    {
+        log("TRYING SIZE " + bits);
+        String[] commandLine =
+                getBackendCommandline(fileIdx, cpus, backendOptions, "--bnd-cbits=" + bits);
+        SATSolutionStatistics stat = runSolver(commandLine, bits, timeoutMins);
+        times.put(bits, stat.elapsedTimeMs);
+        return stat;
+    }
+
     protected void logCmdLine(String[] commandLine){
         String cmdLine = "";
         for (String a : commandLine)  cmdLine += a + " ";
@@ -423,23 +678,74 @@ public class SATBackend {
         return true;
     }
 
+    /**
+     * Called once proc has answered. Pooled processes keep running after that, so
+     * whoever tracked them in checkBeforeRunning must let go of them here.
+     */
+    protected void afterRunning(SynchronousTimedProcess proc) {}
+
+    private static String solutionPathOf(String[] commandLine) {
+        for (int i = 0; i < commandLine.length - 1; i++) {
+            if (commandLine[i].equals("-o")) {
+                return commandLine[i + 1];
+            }
+        }
+        throw new SketchSolverException("No solution file on the solver command line.");
+    }
+
     private SATSolutionStatistics runSolver(String[] commandLine, int bits,
             float timeoutMins)
     {
         logCmdLine(commandLine);
 
         SynchronousTimedProcess proc;
+        SolverProcessPool.PooledSolver pooled = null;
         try {
-            proc = new SynchronousTimedProcess(timeoutMins, commandLine);
+            if (solverPool != null) {
+                pooled = solverPool.acquire(commandLine);
+                proc = new SynchronousTimedProcess(pooled.getProc());
+            } else {
+                proc = new SynchronousTimedProcess(timeoutMins, commandLine);
+            }
         } catch (IOException e) {
             throw new SketchSolverException(
                     "Could not instantiate solver (CEGIS) process.", e);
         }
 
-        if (!checkBeforeRunning(proc)) {
+        boolean mayRun = false;
+        try {
+            mayRun = checkBeforeRunning(proc);
+        } finally {
+            if (!mayRun && pooled != null) {
+                solverPool.release(pooled);
+            }
+        }
+        if (!mayRun) {
             throw new SketchSolverException("CEGIS was killed (assuming user kill); exiting.");
         }
-        final ProcessStatus status = proc.run(false);
+        final ProcessStatus status;
+        SolverOutputParser parser = newOutputParser();
+        if (pooled != null) {
+            try {
+                status =
+                        pooled.solve(new File(options.getTmpSketchFilename()),
+                                solutionPathOf(commandLine), timeoutMins, parser);
+            } finally {
+                afterRunning(proc);
+                solverPool.release(pooled);
+            }
+        } else {
+            ProgramStreamer streamer = null;
+            if (streamedProg != null) {
+                streamer = new ProgramStreamer(streamedProg, proc.getOutputStream());
+                streamer.start();
+            }
+            status = proc.run(false, parser);
+            afterRunning(proc);
+            if (streamer != null) {
+                streamer.finish(status);
+            }
+        }
 
         // deal with killed states
         if (!status.killedByTimeout) {
@@ -450,7 +756,7 @@ public class SATBackend {
                 try {
                     Thread.sleep(1);
                 } catch (InterruptedException e) {}
-                if (SynchronousTimedProcess.wasKilled.get()) {
+                if (ProcessRegistry.get().killedByShutdown()) {
                     throw new SketchSolverException(
                             "CEGIS was killed (assuming user kill); exiting.");
                 } else {
@@ -461,20 +767,26 @@ public class SATBackend {
             }
         } else if (status.exception instanceof IOException) {
             System.err.println("Warning: lost some output from backend because of timeout.");
-            SATSolutionStatistics err_stat = parseStats(status.out);
+            SATSolutionStatistics err_stat = parser.finish(status.out);
             err_stat.killedByTimeout = true;
             err_stat.elapsedTimeMs = (long) (timeoutMins * 60 * 1000);
             err_stat.success = false;
             return err_stat;
         }
 
-        SATSolutionStatistics be_stat = parseStats(status.out);
+        SATSolutionStatistics be_stat = parser.finish(status.out);
         be_stat.killedByTimeout = false;
         be_stat.elapsedTimeMs = status.execTimeMs;
 
         // exit codes 0, 1, and 2 stand for FOUND, UNSAT, and UNDETERMINED, respectively.
         be_stat.success = !status.killedByTimeout && (0 == status.exitCode);
         be_stat.unsat = !status.killedByTimeout && (1 == status.exitCode);
+        if (parser.stoppedOn() != null) {
+            // stopped on a --slv-stop-on marker, which stands for UNSAT
+            log("Solver stopped on '" + parser.stoppedOn() + "'");
+            be_stat.success = false;
+            be_stat.unsat = !status.killedByTimeout;
+        }
 
         lastSolveStats = be_stat;
         if (!options.solverOpts.parallel) {
@@ -487,71 +799,121 @@ public class SATBackend {
         return be_stat;
     }
 
-    protected SATSolutionStatistics parseStats (String out) {
-        SATSolutionStatistics s = new SATSolutionStatistics ();
-        s.out = out;
-
-        List<String> res;
-        String NL = "(?:\\r\\n|\\n|\\r)";
-
-        // XXX: using max virtual mem; maybe resident or private is better
-        res = Misc.search (out,
-                "Total elapsed time \\(ms\\):\\s+(\\d+(?:\\.\\d+)?)"+ NL +
-                "Model building time \\(ms\\):\\s+(\\d+(?:\\.\\d+)?)"+ NL +
-                "Solution time \\(ms\\):\\s+(\\d+(?:\\.\\d+)?)"+ NL +
-                "Max virtual mem \\(bytes\\):\\s+(\\d+)");
-        if (res != null) {
-            s.elapsedTimeMs = (long) (Float.parseFloat (res.get (0)));
-            s.modelBuildingTimeMs = (long) (Float.parseFloat (res.get (1)));
-            s.solutionTimeMs = (long) (Float.parseFloat (res.get (2)));
-            s.maxMemUsageBytes = Long.parseLong (res.get (3));
-        } else {
-            s.elapsedTimeMs = -1;
-            s.modelBuildingTimeMs = -1;
-            s.solutionTimeMs = -1;
-            s.maxMemUsageBytes = -1;
-        }
-
-        // even failed case, we need elapsed time
-        if (s.elapsedTimeMs < 0) {
-            res = Misc.search(out, "FIND TIME \\S+ CHECK TIME \\S+ TOTAL TIME (\\S+)");
-            if (res != null) {
-                s.elapsedTimeMs = 0;
-                for (int i = 0; i < res.size(); i++) {
-                    s.elapsedTimeMs += (long) (Float.parseFloat(res.get(i)));
+    /**
+     * Runs the partial evaluator on its own thread, writing straight into the solver's
+     * stdin while the calling thread drains the solver's output. With --fe-keep-tmp, a
+     * copy of the program still goes to the usual temporary file.
+     */
+    private class ProgramStreamer extends Thread {
+        final Program prog;
+        final OutputStream solverIn;
+        final Phase parentPhase;
+        Throwable error = null;
+
+        ProgramStreamer(Program prog, OutputStream solverIn) {
+            super("ProgramStreamer");
+            this.prog = prog;
+            this.solverIn = solverIn;
+            this.parentPhase = PhaseTelemetry.current();
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            OutputStream outStream = new BufferedOutputStream(solverIn, 1 << 16);
+            try {
+                if (options.feOpts.keepTmp) {
+                    OutputStream copy =
+                            new BufferedOutputStream(new FileOutputStream(
+                                    options.getTmpSketchFilename()), 4096);
+                    outStream = new TeeOutputStream(outStream, copy);
+                }
+                partialEval(prog, outStream, parentPhase);
+                outStream.flush();
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                // EOF tells the solver the program is complete
+                try {
+                    outStream.close();
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = e;
+                    }
                 }
             }
         }
 
-        res = Misc.search (out, "SKETCH nodes = (\\d+)");
-        if (res != null) {
-            s.numNodesInitial = Long.parseLong (res.get (0));
-        } else {
-            s.numNodesInitial = -1;
+        /**
+         * Waits for the program to be written out. Errors from the partial evaluator
+         * are rethrown; a broken pipe is only an error if the solver claims success.
+         */
+        void finish(ProcessStatus status) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                throw new SketchSolverException("Interrupted while streaming program", e);
+            }
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            } else if (error instanceof Error) {
+                throw (Error) error;
+            } else if (error != null && status.exitCode == 0 && !status.killedByTimeout)
+            {
+                throw new SketchSolverException("Could not stream program to solver.",
+                        error);
+            }
         }
+    }
 
-        res = Misc.search (out, "Final Problem size: Problem nodes = (\\d+)");
-        if (null != res) {
-            s.numNodesFinal = Long.parseLong (res.get (0));
-        } else {
-            s.numNodesFinal = -1;
+    /** Writes every byte to both streams. */
+    private static class TeeOutputStream extends OutputStream {
+        final OutputStream first, second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
         }
 
-        res = Misc.search (out, "# OF CONTROLS:\\s+(\\d+)");
-        if (null != res) {
-            s.numControls = Long.parseLong (res.get (0));
-        } else {
-            s.numControls = -1;
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
         }
 
-        res = Misc.search (out, "ctrlSize = (\\d+)");
-        if (null != res) {
-            s.numControlBits = Long.parseLong (res.get (0));
-        } else {
-            s.numControlBits = -1;
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
         }
 
-        return s;
+        @Override
+        public void close() throws IOException {
+            try {
+                first.close();
+            } finally {
+                second.close();
+            }
+        }
+    }
+
+    /** A parser for the statistics of one run; subclasses may look at more lines. */
+    protected SolverOutputParser newOutputParser() {
+        return new SolverOutputParser(options.solverOpts.stopOn.asCollection());
+    }
+
+    protected SATSolutionStatistics parseStats (String out) {
+        SolverOutputParser parser = newOutputParser();
+        for (String line : out.split("\\r\\n|\\n|\\r")) {
+            parser.onLine(line);
+        }
+        return parser.finish(out);
     }
 
     public SolutionStatistics getLastSolutionStats () {
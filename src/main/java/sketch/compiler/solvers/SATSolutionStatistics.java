@@ -3,6 +3,9 @@
  */
 package sketch.compiler.solvers;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Basic statistics from the SAT backend.
  *
@@ -23,6 +26,8 @@ public class SATSolutionStatistics extends SolutionStatistics {
     public boolean killedByTimeout;
     public double probability;
     public String out;
+    /** solver time for each width tried by --bnd-incremental, in the order tried */
+    public Map<Integer, Long> widthTimesMs = new LinkedHashMap<Integer, Long>();
 
 	public long elapsedTimeMs () 	   {  return elapsedTimeMs;  }
 	public long maxMemoryUsageBytes () {  return maxMemUsageBytes;  }
@@ -38,11 +43,17 @@ public class SATSolutionStatistics extends SolutionStatistics {
     }
 
 	public String toString () {
+		String widths = "";
+		for (Map.Entry<Integer, Long> e : widthTimesMs.entrySet()) {
+			String label = "time with " + e.getKey() + " bits (s) ";
+			while (label.length() < 33) label += "-";
+			widths += "      " + label + "> " + sec (e.getValue ()) + "\n";
+		}
 		return super.toString () +
 "      [SAT-specific solution stats]\n"+
 "      initial number of nodes ---------> "+ numNodesInitial +"\n"+
 "      number of nodes after opts ------> "+ numNodesFinal +"\n"+
 "      number of controls --------------> "+ numControls +"\n"+
-"      total number of control bits ----> "+ numControlBits +"\n";
+"      total number of control bits ----> "+ numControlBits +"\n" + widths;
 	}
 }
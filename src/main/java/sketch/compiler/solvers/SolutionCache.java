@@ -0,0 +1,143 @@
+package sketch.compiler.solvers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * On-disk cache of solution files, keyed by a digest of the backend program together
+ * with everything else that can change the solver's answer. Entries are plain copies of
+ * the file extractOracleFromOutput reads. The cache is trimmed to a size bound by
+ * dropping the least recently used entries; a hit refreshes the entry's timestamp.
+ */
+public class SolutionCache {
+    protected static final String SUFFIX = ".sol";
+
+    protected final File dir;
+    protected final long maxBytes;
+
+    public SolutionCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Hashes the program file and the given options.
+     *
+     * @return the key, or null if the program file can't be read
+     */
+    public String keyFor(File program, Iterable<?> settings) {
+        return digest(program, settings);
+    }
+
+    /**
+     * SHA-256 of the file's contents followed by the string form of each setting.
+     *
+     * @return the digest in hex, or null if the file can't be read
+     */
+    public static String digest(File program, Iterable<?> settings) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            InputStream in = new FileInputStream(program);
+            try {
+                byte[] buf = new byte[1 << 16];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    md.update(buf, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+            for (Object s : settings) {
+                // separator keeps ("ab", "c") and ("a", "bc") apart
+                md.update((byte) 0);
+                md.update(String.valueOf(s).getBytes("UTF-8"));
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : md.digest()) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (IOException e) {
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected File entry(String key) {
+        return new File(dir, key + SUFFIX);
+    }
+
+    /**
+     * Copies the cached solution for key to dest.
+     *
+     * @return false on a miss
+     */
+    public boolean lookup(String key, File dest) {
+        File e = entry(key);
+        if (!e.isFile()) {
+            return false;
+        }
+        try {
+            FileUtils.copyFile(e, dest);
+        } catch (IOException ex) {
+            return false;
+        }
+        e.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    public void store(String key, File solution) {
+        if (!(dir.mkdirs() || dir.isDirectory())) {
+            return;
+        }
+        File e = entry(key);
+        File tmp = new File(dir, key + ".part");
+        try {
+            // copy then rename, so a concurrent run never sees half an entry
+            FileUtils.copyFile(solution, tmp);
+            if (!tmp.renameTo(e)) {
+                FileUtils.deleteQuietly(tmp);
+                return;
+            }
+        } catch (IOException ex) {
+            FileUtils.deleteQuietly(tmp);
+            return;
+        }
+        evict();
+    }
+
+    /** Deletes the least recently used entries until the cache fits in maxBytes. */
+    protected void evict() {
+        File[] entries = dir.listFiles();
+        if (entries == null) {
+            return;
+        }
+        long total = 0;
+        for (File f : entries) {
+            total += f.length();
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+        Arrays.sort(entries, new Comparator<File>() {
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (int i = 0; i < entries.length && total > maxBytes; i++) {
+            long len = entries[i].length();
+            if (entries[i].delete()) {
+                total -= len;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package sketch.compiler.solvers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import sketch.util.LineListener;
+
+/**
+ * Builds the statistics of a solver run from its output, one line at a time, so the
+ * output never has to be held in memory as a whole. Subclasses can look at more lines
+ * by overriding onLine.
+ * <p>
+ * The parser can also watch for stop markers: once a line contains one of them, it
+ * asks for the solver to be stopped and remembers which marker it saw.
+ */
+public class SolverOutputParser implements LineListener {
+    static final String NUM = "(\\d+(?:\\.\\d+)?)";
+    // the four lines of the summary cegis prints at the end, in this order
+    static final Pattern[] summary =
+            {
+                    Pattern.compile("Total elapsed time \\(ms\\):\\s+" + NUM + "$"),
+                    Pattern.compile("^Model building time \\(ms\\):\\s+" + NUM + "$"),
+                    Pattern.compile("^Solution time \\(ms\\):\\s+" + NUM + "$"),
+                    Pattern.compile("^Max virtual mem \\(bytes\\):\\s+(\\d+)$") };
+    static final Pattern totalTime =
+            Pattern.compile("FIND TIME \\S+ CHECK TIME \\S+ TOTAL TIME (\\S+)");
+    static final Pattern sketchNodes = Pattern.compile("SKETCH nodes = (\\d+)");
+    static final Pattern finalNodes =
+            Pattern.compile("Final Problem size: Problem nodes = (\\d+)");
+    static final Pattern controls = Pattern.compile("# OF CONTROLS:\\s+(\\d+)");
+    static final Pattern ctrlSize = Pattern.compile("ctrlSize = (\\d+)");
+
+    protected final SATSolutionStatistics stat = new SATSolutionStatistics();
+    protected final List<String> stopMarkers;
+    protected String stoppedOn = null;
+
+    /** how many summary lines in a row have been seen so far */
+    int summaryStep = 0;
+    final String[] summaryValues = new String[summary.length];
+    boolean haveSummary = false;
+    boolean haveTotalTime = false;
+    long totalTimeMs = 0;
+
+    public SolverOutputParser() {
+        this(null);
+    }
+
+    public SolverOutputParser(Collection<String> stopMarkers) {
+        this.stopMarkers = new ArrayList<String>();
+        if (stopMarkers != null) {
+            this.stopMarkers.addAll(stopMarkers);
+        }
+        stat.numNodesInitial = -1;
+        stat.numNodesFinal = -1;
+        stat.numControls = -1;
+        stat.numControlBits = -1;
+    }
+
+    public boolean onLine(String line) {
+        if (!haveSummary) {
+            matchSummary(line);
+        }
+        Matcher m = totalTime.matcher(line);
+        while (m.find()) {
+            haveTotalTime = true;
+            totalTimeMs += (long) (Float.parseFloat(m.group(1)));
+        }
+        // like the old whole-output search, the first match of each counter wins
+        if (stat.numNodesInitial < 0) {
+            stat.numNodesInitial = firstLong(sketchNodes, line);
+        }
+        if (stat.numNodesFinal < 0) {
+            stat.numNodesFinal = firstLong(finalNodes, line);
+        }
+        if (stat.numControls < 0) {
+            stat.numControls = firstLong(controls, line);
+        }
+        if (stat.numControlBits < 0) {
+            stat.numControlBits = firstLong(ctrlSize, line);
+        }
+        if (stoppedOn == null) {
+            for (String marker : stopMarkers) {
+                if (line.contains(marker)) {
+                    stoppedOn = marker;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void matchSummary(String line) {
+        Matcher m = summary[summaryStep].matcher(line);
+        if (!m.find()) {
+            // the block must be contiguous; this line may start a new one
+            summaryStep = 0;
+            m = summary[0].matcher(line);
+            if (!m.find()) {
+                return;
+            }
+        }
+        summaryValues[summaryStep++] = m.group(1);
+        if (summaryStep == summary.length) {
+            haveSummary = true;
+            stat.elapsedTimeMs = (long) (Float.parseFloat(summaryValues[0]));
+            stat.modelBuildingTimeMs = (long) (Float.parseFloat(summaryValues[1]));
+            stat.solutionTimeMs = (long) (Float.parseFloat(summaryValues[2]));
+            stat.maxMemUsageBytes = Long.parseLong(summaryValues[3]);
+        }
+    }
+
+    static long firstLong(Pattern p, String line) {
+        Matcher m = p.matcher(line);
+        return m.find() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    /** @return the stop marker that was seen, or null if the solver ran to the end */
+    public String stoppedOn() {
+        return stoppedOn;
+    }
+
+    /**
+     * Completes the statistics after the last line.
+     *
+     * @param log
+     *            what was kept of the raw output, for display
+     */
+    public SATSolutionStatistics finish(String log) {
+        stat.out = log;
+        if (!haveSummary) {
+            stat.elapsedTimeMs = -1;
+            stat.modelBuildingTimeMs = -1;
+            stat.solutionTimeMs = -1;
+            stat.maxMemUsageBytes = -1;
+            // even failed case, we need elapsed time
+            if (haveTotalTime) {
+                stat.elapsedTimeMs = totalTimeMs;
+            }
+        }
+        return stat;
+    }
+}
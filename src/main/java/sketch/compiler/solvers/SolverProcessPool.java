@@ -0,0 +1,361 @@
+package sketch.compiler.solvers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.util.LineListener;
+import sketch.util.LogRingBuffer;
+import sketch.util.ProcessKillerThread;
+import sketch.util.ProcessRegistry;
+import sketch.util.ProcessStatus;
+import sketch.util.SynchronousTimedProcess;
+
+/**
+ * Keeps a bounded number of solver processes alive in -interactive mode and hands
+ * them out for one job at a time, so that short trials don't pay the process startup
+ * again. A job writes the backend program into the process's stdin and waits for the
+ * COMPLETED marker, the same protocol InteractiveSATBackend uses.
+ * <p>
+ * Processes are matched on their command line minus the solution file and the input
+ * file. The seed is left out too unless --slv-seed fixed it, in which case a trial only
+ * runs on a process started with its own seed; otherwise a reused process just
+ * continues its own random stream. A process is replaced after a configurable number
+ * of jobs, and whenever it dies or is killed by the timeout.
+ */
+public class SolverProcessPool {
+    public static final String INTERACTIVE_FLAG = "-interactive";
+    public static final String DONE_MARKER = "COMPLETED";
+    /**
+     * What the solver prints before DONE_MARKER in -interactive mode. The code is the one
+     * it would exit with in batch mode: 0 found, 1 UNSAT, 2 undetermined. The line comes
+     * from the solver (the separate sketch-backend project), nothing else in this tree
+     * reads it; SolverProcessPoolJunitTest pins down the format the pool expects. Without
+     * it a job that leaves no solution counts as undetermined, and --slv-stop-on can still
+     * mark it UNSAT.
+     */
+    static final Pattern RESULT_LINE = Pattern.compile("^RESULT = (\\d+)");
+    /** how long a retired process gets to exit on its own */
+    static final int EXIT_WAIT_SECS = 1;
+
+    protected final SketchOptions options;
+    protected final int maxProcs;
+    protected final int maxJobs;
+    /** every live process, busy or not */
+    protected final List<PooledSolver> live = new ArrayList<PooledSolver>();
+    protected final List<PooledSolver> idle = new ArrayList<PooledSolver>();
+    protected int nextId = 0;
+    protected boolean closed = false;
+
+    public SolverProcessPool(SketchOptions options, int maxProcs, int maxJobs) {
+        this.options = options;
+        this.maxProcs = Math.max(1, maxProcs);
+        this.maxJobs = Math.max(1, maxJobs);
+    }
+
+    /**
+     * The part of the command line a warm process must agree on: everything except the
+     * solution file, the trailing input file and, unless the user fixed the seed, the
+     * seed.
+     */
+    protected String keyOf(String[] commandLine) {
+        boolean keepSeed = options.solverOpts.seed != 0;
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < commandLine.length - 1; i++) {
+            if ((commandLine[i].equals("--seed") && !keepSeed) ||
+                    commandLine[i].equals("-o"))
+            {
+                i++;
+                continue;
+            }
+            key.append(commandLine[i]).append(' ');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns an idle process started with a compatible command line, starting a new one
+     * if there is room. Blocks while every slot is busy.
+     */
+    public synchronized PooledSolver acquire(String[] commandLine) throws IOException {
+        String key = keyOf(commandLine);
+        while (true) {
+            if (closed) {
+                throw new IOException("solver pool already shut down");
+            }
+            for (Iterator<PooledSolver> it = idle.iterator(); it.hasNext();) {
+                PooledSolver s = it.next();
+                if (!s.isAlive()) {
+                    it.remove();
+                    live.remove(s);
+                } else if (s.key.equals(key)) {
+                    it.remove();
+                    return s;
+                }
+            }
+            if (live.size() >= maxProcs && !idle.isEmpty()) {
+                // make room by retiring an idle process with a different command line
+                retire(idle.remove(0));
+            }
+            if (live.size() < maxProcs) {
+                PooledSolver s = new PooledSolver(nextId++, key, commandLine);
+                live.add(s);
+                return s;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted while waiting for a solver process");
+            }
+        }
+    }
+
+    /** Hands a process back after a job; dead or worn out processes are replaced. */
+    public synchronized void release(PooledSolver s) {
+        if (closed || !s.isAlive() || s.jobs >= maxJobs) {
+            retire(s);
+        } else {
+            idle.add(s);
+        }
+        notifyAll();
+    }
+
+    protected void retire(PooledSolver s) {
+        live.remove(s);
+        idle.remove(s);
+        s.exit();
+    }
+
+    public synchronized void shutdown() {
+        closed = true;
+        for (PooledSolver s : new ArrayList<PooledSolver>(live)) {
+            retire(s);
+        }
+        notifyAll();
+    }
+
+    public synchronized int numLive() {
+        return live.size();
+    }
+
+    /** One warm solver process; only one job runs on it at a time. */
+    public class PooledSolver {
+        final int id;
+        final String key;
+        final Process proc;
+        final BufferedReader out;
+        final OutputStream in;
+        final File solutionFile;
+        final StringBuffer err = new StringBuffer();
+        int jobs = 0;
+
+        PooledSolver(int id, String key, String[] commandLine) throws IOException {
+            this.id = id;
+            this.key = key;
+            solutionFile = new File(options.getTmpFilename("pool-solution" + id));
+            List<String> cmd = new ArrayList<String>();
+            for (int i = 0; i < commandLine.length - 1; i++) {
+                cmd.add(commandLine[i]);
+                if (commandLine[i].equals("-o")) {
+                    cmd.add(solutionFile.getPath());
+                    i++;
+                }
+            }
+            if (!cmd.contains(INTERACTIVE_FLAG)) {
+                cmd.add(INTERACTIVE_FLAG);
+            }
+            if (options.debugOpts.verbosity > 2) {
+                System.err.println("starting pooled solver " + id + ": " + cmd);
+            }
+            proc = new ProcessBuilder(cmd).start();
+            ProcessRegistry.get().register(proc);
+            out = new BufferedReader(new InputStreamReader(proc.getInputStream()));
+            in = proc.getOutputStream();
+            Thread errDrain = new Thread("pooled solver " + id + " stderr") {
+                @Override
+                public void run() {
+                    BufferedReader r =
+                            new BufferedReader(new InputStreamReader(proc.getErrorStream()));
+                    try {
+                        String line;
+                        while ((line = r.readLine()) != null) {
+                            err.append(line).append('\n');
+                        }
+                    } catch (IOException e) {}
+                }
+            };
+            errDrain.setDaemon(true);
+            errDrain.start();
+        }
+
+        public Process getProc() {
+            return proc;
+        }
+
+        public boolean isAlive() {
+            return ProcessRegistry.isAlive(proc);
+        }
+
+        /**
+         * Feeds the program to the process on its own thread, so that a solver that
+         * prints a lot while still reading can't block us, and waits for the answer. The solution, if
+         * any, is moved to solutionPath. Exit code 0 means a solution was written, 1 that
+         * the solver reported the sketch UNSAT, and 2 that the process is still up but
+         * produced no solution for another reason; if the process died, its own exit code
+         * is reported.
+         */
+        public ProcessStatus solve(File program, String solutionPath, float timeoutMins,
+                LineListener listener)
+        {
+            ProcessStatus status = new ProcessStatus();
+            long startMs = System.currentTimeMillis();
+            ProcessKillerThread killer = null;
+            ++jobs;
+            FileUtils.deleteQuietly(solutionFile);
+            err.setLength(0);
+            LogRingBuffer log =
+                    new LogRingBuffer(SynchronousTimedProcess.LOG_HEAD_LINES,
+                            SynchronousTimedProcess.LOG_TAIL_LINES);
+            boolean completed = false;
+            int result = -1;
+            ProgramFeeder feeder = null;
+            try {
+                if (timeoutMins > 0) {
+                    killer = new ProcessKillerThread(proc, timeoutMins);
+                    killer.start();
+                }
+                feeder = new ProgramFeeder(new FileInputStream(program));
+                feeder.start();
+                String line;
+                while ((line = out.readLine()) != null) {
+                    log.add(line);
+                    Matcher m = RESULT_LINE.matcher(line);
+                    if (m.find()) {
+                        result = Integer.parseInt(m.group(1));
+                    }
+                    if (line.contains(DONE_MARKER)) {
+                        completed = true;
+                        break;
+                    }
+                    if (listener != null && listener.onLine(line)) {
+                        // the process is replaced once it's released
+                        status.stoppedByListener = true;
+                        ProcessRegistry.get().kill(proc);
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                status.exception = e;
+            } finally {
+                if (feeder != null) {
+                    // a process that stopped early has broken the pipe, so this ends
+                    try {
+                        feeder.join();
+                    } catch (InterruptedException e) {
+                        status.exception = e;
+                        ProcessRegistry.get().kill(proc);
+                    }
+                }
+                if (killer != null) {
+                    killer.abort();
+                    status.killedByTimeout = killer.didKill();
+                }
+            }
+            if (completed && feeder.error != null && status.exception == null) {
+                // only an error if the solver claims to have read the whole program
+                status.exception = feeder.error;
+            }
+            status.out = log.toString();
+            status.execTimeMs = System.currentTimeMillis() - startMs;
+            if (completed) {
+                if (result == 1) {
+                    status.exitCode = 1;
+                } else if (solutionFile.isFile()) {
+                    try {
+                        FileUtils.copyFile(solutionFile, new File(solutionPath));
+                        status.exitCode = 0;
+                    } catch (IOException e) {
+                        status.exception = e;
+                    }
+                } else {
+                    status.exitCode = 2;
+                }
+            } else {
+                try {
+                    status.exitCode = proc.waitFor();
+                } catch (InterruptedException e) {
+                    status.exception = e;
+                    ProcessRegistry.get().kill(proc);
+                }
+            }
+            if (status.killedByTimeout) {
+                status.execTimeMs = (long) (timeoutMins * 60 * 1000);
+                status.exception = null;
+            }
+            status.err = err.toString();
+            return status;
+        }
+
+        /** Copies a program into the process's stdin; the stream stays open. */
+        class ProgramFeeder extends Thread {
+            final InputStream programIn;
+            IOException error = null;
+
+            ProgramFeeder(InputStream programIn) {
+                super("pooled solver " + id + " stdin");
+                this.programIn = programIn;
+                setDaemon(true);
+            }
+
+            @Override
+            public void run() {
+                try {
+                    IOUtils.copy(programIn, in);
+                    in.flush();
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    IOUtils.closeQuietly(programIn);
+                }
+            }
+        }
+
+        void exit() {
+            if (isAlive()) {
+                PrintStream ps = new PrintStream(in);
+                ps.println("exit();");
+                ps.flush();
+                ps.close();
+                try {
+                    if (!proc.waitFor(EXIT_WAIT_SECS, TimeUnit.SECONDS)) {
+                        ProcessRegistry.get().kill(proc);
+                    }
+                } catch (InterruptedException e) {
+                    ProcessRegistry.get().kill(proc);
+                }
+            }
+            ProcessRegistry.get().deregister(proc);
+            FileUtils.deleteQuietly(solutionFile);
+        }
+
+        @Override
+        public String toString() {
+            return "PooledSolver[" + id + ", jobs=" + jobs + ", " + key + "]";
+        }
+    }
+}
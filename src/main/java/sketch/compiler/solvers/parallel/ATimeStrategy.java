@@ -45,6 +45,8 @@ public abstract class ATimeStrategy implements IStrategy {
     public void pushInfo(int degree, List<SATSolutionStatistics> trials) {
         if (trials == null || trials.isEmpty())
             return;
+        // a degree we already know about (e.g., from an earlier run) needn't be tried
+        degrees.remove((Integer) degree);
 
         StringBuilder buf = new StringBuilder();
         buf.append(getName() + " pushed info: degree " + degree + System.lineSeparator());
@@ -3,6 +3,7 @@ package sketch.compiler.solvers.parallel;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -145,16 +146,9 @@ public class AsyncWilcoxonStrategy extends WilcoxonStrategy implements
         }
 
         // update statistics without regard to active degrees
-        long t = stat.elapsedTimeMs();
-        List<Double> dist_tp;
-        synchronized (lock) {
-            if (dMap.containsKey(degree)) {
-                dist_tp = dMap.get(degree);
-            } else {
-                dist_tp = new ArrayList<Double>();
-                dMap.put(degree, dist_tp);
-            }
-            dist_tp.add((double) t / stat.probability);
+        pushInfo(degree, Collections.singletonList(stat));
+        if (priors != null) {
+            priors.record(degree, stat);
         }
 
         // check whether this output came from the degree we're looking for
@@ -169,6 +163,22 @@ public class AsyncWilcoxonStrategy extends WilcoxonStrategy implements
         }
     }
 
+    @Override
+    public void pushInfo(int degree, List<SATSolutionStatistics> trials) {
+        synchronized (lock) {
+            List<Double> dist_tp;
+            if (dMap.containsKey(degree)) {
+                dist_tp = dMap.get(degree);
+            } else {
+                dist_tp = new ArrayList<Double>();
+                dMap.put(degree, dist_tp);
+            }
+            for (SATSolutionStatistics stat : trials) {
+                dist_tp.add((double) stat.elapsedTimeMs() / stat.probability);
+            }
+        }
+    }
+
     // run trials *asynchronously*
     // i.e., this method will yield the control after forking workers
     void runAsyncTrials(ValueOracle oracle, boolean hasMinimize, int d, int n) {
@@ -272,7 +282,7 @@ public class AsyncWilcoxonStrategy extends WilcoxonStrategy implements
     void waitUntilSampledEnough() throws Lucky {
         synchronized (managerLock) {
             // to not miss the signal and not wake up for spurious cases
-            while (!sampledEnough && !parallel_solved) {
+            while (!sampledEnough && !parallel_solved && !parallel_failed) {
                 try {
                     managerLock.wait();
                 } catch (InterruptedException e) {}
@@ -280,9 +290,9 @@ public class AsyncWilcoxonStrategy extends WilcoxonStrategy implements
             // clear signal
             sampledEnough = false;
         }
-        // double-check whether a solution was found
+        // double-check whether a solution or UNSAT was found
         synchronized (lock) {
-            if (parallel_solved) {
+            if (parallel_solved || parallel_failed) {
                 throw lucky;
             }
         }
@@ -392,6 +402,10 @@ public class AsyncWilcoxonStrategy extends WilcoxonStrategy implements
         // place to maintain future parallel tasks
         aw_futures = new ArrayList<Future<SATSolutionStatistics>>(test_trial_max);
 
-        return super.solve(oracle, hasMinimize, timeoutMins);
+        boolean worked = super.solve(oracle, hasMinimize, timeoutMins);
+        // WilcoxonStrategy counts any Lucky as solved, but ours may stand for UNSAT
+        synchronized (lock) {
+            return worked && !parallel_failed;
+        }
     }
 }
@@ -1,5 +1,6 @@
 package sketch.compiler.solvers.parallel;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
@@ -7,14 +8,19 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import sketch.compiler.ast.core.TempVarGen;
 import sketch.compiler.dataflow.recursionCtrl.RecursionControl;
 import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.compiler.solvers.DegreePriors;
 import sketch.compiler.solvers.SATBackend;
 import sketch.compiler.solvers.SATSolutionStatistics;
+import sketch.compiler.solvers.SolutionCache;
+import sketch.compiler.solvers.SolverOutputParser;
 import sketch.compiler.solvers.constructs.ValueOracle;
-import sketch.util.Misc;
+import sketch.util.ProcessRegistry;
 import sketch.util.SynchronousTimedProcess;
 import sketch.util.exceptions.SketchSolverException;
 
@@ -106,6 +112,9 @@ public class ParallelBackend extends SATBackend {
                         }
                     }
                 }
+                if (state == THIS_SOLVED || state == THIS_UNSAT) {
+                    concluded(fileIdx, worker_stat);
+                }
                 // Only one thread can be in a state that is either THIS_SOLVED
                 // or THIS_UNSAT.
                 switch (state) {
@@ -155,6 +164,33 @@ public class ParallelBackend extends SATBackend {
         };
     }
 
+    /**
+     * Opens the saved degree timings for the current sketch: the backend program and the
+     * options that are passed to every trial.
+     *
+     * @return null unless --slv-degree-priors is set
+     */
+    protected DegreePriors openDegreePriors() {
+        if (!options.solverOpts.degreePriors) {
+            return null;
+        }
+        List<Object> settings = new ArrayList<Object>(options.getBackendOptions());
+        settings.add("cbits=" + options.bndOpts.cbits);
+        String fingerprint =
+                SolutionCache.digest(new File(options.getTmpSketchFilename()), settings);
+        if (fingerprint == null) {
+            return null;
+        }
+        return new DegreePriors(options.persistentDir(".degree-priors"), fingerprint,
+                test_trial_max * 3);
+    }
+
+    /**
+     * Called once, by the worker whose trial gave the first conclusive answer (a
+     * solution or UNSAT), before the result is reported.
+     */
+    protected void concluded(int fileIdx, SATSolutionStatistics stat) {}
+
     float adaptiveTimeoutMins;
 
     ExecutorService es;
@@ -318,7 +354,8 @@ public class ParallelBackend extends SATBackend {
             hasFinished = parallel_solved || parallel_failed;
         }
 
-        if (es.isShutdown() || hasFinished) {
+        // the asynchronous strategies run their trials on their own executor
+        if ((es != null && es.isShutdown()) || hasFinished) {
             return false;
         }
 
@@ -328,27 +365,46 @@ public class ParallelBackend extends SATBackend {
         return true;
     }
 
+    @Override
+    protected void afterRunning(SynchronousTimedProcess proc) {
+        // a pooled process stays alive for the next trial; don't kill it with this one's
+        // siblings
+        synchronized (lock) {
+            cegiss.remove(proc.getProc());
+        }
+    }
+
     public void terminateSubprocesses() {
-        List<Process> mustwait = new ArrayList<Process>();
+        List<Process> mustwait = destroySubprocesses();
+        for (Process p : mustwait) {
+            try {
+                p.waitFor();
+            } catch (InterruptedException e1) {
+                plog("Wait threw exception");
+            }
+        }
+    }
+
+    /**
+     * Kills every CEGIS process that is still running, without waiting for them.
+     *
+     * @return the processes that were killed
+     */
+    protected List<Process> destroySubprocesses() {
+        List<Process> killed = new ArrayList<Process>();
         synchronized (lock) {
             for (Process p : cegiss) {
                 try {
                     p.exitValue();
                 } catch (IllegalThreadStateException e) {
                     plog("destroying " + p);
-                    p.destroy(); // if still running, kill the process
-                    mustwait.add(p);
+                    ProcessRegistry.get().kill(p); // if still running, kill the process
+                    killed.add(p);
                 }
             }
             cegiss.clear();
         }
-        for (Process p : mustwait) {
-            try {
-                p.waitFor();
-            } catch (InterruptedException e1) {
-                plog("Wait threw exception");
-            }
-        }
+        return killed;
     }
 
     public enum STAGE {
@@ -357,26 +413,34 @@ public class ParallelBackend extends SATBackend {
 
     public static STAGE stage;
 
+    static final Pattern holeBound =
+            Pattern.compile("(H__\\S+): replacing with value \\d+ bnd= (\\d+)");
+
     @Override
-    protected SATSolutionStatistics parseStats(String out) {
-        SATSolutionStatistics stat = super.parseStats(out);
+    protected SolverOutputParser newOutputParser() {
         // parsing holes' range and calculate search space might be expensive
         // so, do the calculation only if it is in the learning phase
-        if (stage == STAGE.LEARNING) {
-            stat.probability = 1.0;
-            List<String> res;
-            res = Misc.search(out, "(H__\\S+): replacing with value \\d+ bnd= (\\d+)");
-            if (res != null) {
-                for (int i = 0; i < res.size(); i += 2) {
-                    // String hole = res.get(i);
-                    int bound = Integer.parseInt(res.get(i + 1));
+        if (stage != STAGE.LEARNING) {
+            return super.newOutputParser();
+        }
+        return new SolverOutputParser(options.solverOpts.stopOn.asCollection()) {
+            {
+                stat.probability = 1.0;
+            }
+
+            @Override
+            public boolean onLine(String line) {
+                Matcher m = holeBound.matcher(line);
+                while (m.find()) {
+                    // String hole = m.group(1);
+                    int bound = Integer.parseInt(m.group(2));
                     if (bound <= 1)
                         continue;
                     stat.probability /= bound;
                 }
+                return super.onLine(line);
             }
-        }
-        return stat;
+        };
     }
 
     protected List<SATSolutionStatistics> runSyncTrials(ValueOracle oracle,
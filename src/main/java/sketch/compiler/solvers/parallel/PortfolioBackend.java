@@ -0,0 +1,302 @@
+package sketch.compiler.solvers.parallel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Vector;
+
+import sketch.compiler.ast.core.TempVarGen;
+import sketch.compiler.dataflow.recursionCtrl.RecursionControl;
+import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.compiler.solvers.SATSolutionStatistics;
+import sketch.compiler.solvers.constructs.ValueOracle;
+import sketch.util.exceptions.SketchSolverException;
+
+/**
+ * Races differently configured solvers against each other. Trial i runs configuration
+ * i modulo the portfolio size, each with its own seed, and the first trial that finds a
+ * solution or proves UNSAT kills all the others right away.
+ * <p>
+ * The backend counts how often each configuration won and keeps the counts next to the
+ * temporary directory. On the next run of the same sketch, the configurations that won
+ * most often are started first.
+ */
+public class PortfolioBackend extends ParallelBackend {
+
+    final static String name = "[portfolio]";
+
+    /** configurations in launch order */
+    protected final List<Config> configs;
+    protected final Map<String, Integer> wins = new LinkedHashMap<String, Integer>();
+
+    public PortfolioBackend(SketchOptions options, RecursionControl rcontrol,
+            TempVarGen varGen)
+    {
+        super(options, rcontrol, varGen);
+        if (options.solverOpts.pCPUs <= 0) {
+            // racing is about latency, so take every core
+            cpu = Runtime.getRuntime().availableProcessors();
+        }
+        configs = new ArrayList<Config>();
+        if (options.solverOpts.portfolio.isEmpty()) {
+            configs.addAll(defaultPortfolio());
+        } else {
+            List<String> specs = new ArrayList<String>();
+            for (String spec : options.solverOpts.portfolio) {
+                specs.add(spec);
+            }
+            // the option is a set; give it a fixed order
+            Collections.sort(specs);
+            for (String spec : specs) {
+                configs.add(Config.parse(spec));
+            }
+        }
+        loadWins();
+        // best previous winners first; the sort is stable, so ties keep their order
+        Collections.sort(configs, new Comparator<Config>() {
+            public int compare(Config a, Config b) {
+                return winsOf(b) - winsOf(a);
+            }
+        });
+    }
+
+    protected List<Config> defaultPortfolio() {
+        List<Config> res = new ArrayList<Config>();
+        List<Integer> degrees = new ArrayList<Integer>(randdegrees);
+        if (degrees.isEmpty()) {
+            for (int d = 2; d <= 32; d *= 2) {
+                degrees.add(d);
+            }
+        }
+        for (int d : degrees) {
+            res.add(new Config(d, -1, -1, true));
+        }
+        int cbits = options.bndOpts.cbits;
+        int inline = options.bndOpts.inlineAmnt;
+        res.add(new Config(-1, -1, -1, false));
+        res.add(new Config(degrees.get(0), cbits + 2, -1, true));
+        if (inline > 0) {
+            res.add(new Config(degrees.get(0), -1, inline + 2, true));
+        }
+        return res;
+    }
+
+    protected Config configOf(int fileIdx) {
+        return configs.get(fileIdx % configs.size());
+    }
+
+    int winsOf(Config c) {
+        Integer n = wins.get(c.toString());
+        return n == null ? 0 : n;
+    }
+
+    /** @return how many races each configuration has won, including earlier runs */
+    public Map<String, Integer> getWinCounts() {
+        synchronized (lock) {
+            return new LinkedHashMap<String, Integer>(wins);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public String[] getBackendCommandline(int i, int cpus, Vector<String> commandLineOptions_,
+            String... additional)
+    {
+        Config c = configOf(i);
+        Vector<String> commandLineOptions = (Vector<String>) commandLineOptions_.clone();
+        List<String> extra = new ArrayList<String>();
+        for (String a : additional) {
+            extra.add(a);
+        }
+        if (c.degree >= 0) {
+            extra.add("-randdegree");
+            extra.add("" + c.degree);
+        }
+        // the incremental search picks its own widths
+        if (c.cbits > 0 && !options.bndOpts.incremental.isSet) {
+            extra.add("--bnd-cbits=" + c.cbits);
+        }
+        if (c.inline > 0) {
+            int idx = commandLineOptions.indexOf("--bnd-inline-amnt");
+            if (idx >= 0) {
+                commandLineOptions.remove(idx + 1);
+                commandLineOptions.remove(idx);
+            }
+            commandLineOptions.add("--bnd-inline-amnt");
+            commandLineOptions.add("" + c.inline);
+        }
+        String[] res =
+                super.getBackendCommandline(i, cpus, commandLineOptions,
+                        extra.toArray(new String[0]));
+        if (c.randassign) {
+            return res;
+        }
+        List<String> filtered = new ArrayList<String>();
+        for (String a : res) {
+            if (!a.equals("-randassign")) {
+                filtered.add(a);
+            }
+        }
+        return filtered.toArray(new String[0]);
+    }
+
+    @Override
+    protected void concluded(int fileIdx, SATSolutionStatistics stat) {
+        String c = configOf(fileIdx).toString();
+        synchronized (lock) {
+            Integer n = wins.get(c);
+            wins.put(c, n == null ? 1 : n + 1);
+            plog(name + " " + c + " won (" + fileIdx + ")");
+        }
+        destroySubprocesses();
+    }
+
+    @Override
+    protected boolean solve(ValueOracle oracle, boolean hasMinimize, float timeoutMins) {
+        // every configuration sets its own degree
+        int old_d = options.solverOpts.randdegree;
+        int old_trials = options.solverOpts.pTrials;
+        options.solverOpts.randdegree = -1;
+        randdegrees.clear();
+        if (old_trials <= 0) {
+            // race each configuration at least once
+            options.solverOpts.pTrials = Math.max(cpu, configs.size());
+        }
+        plog(name + " racing " + configs.size() + " configurations on " + cpu +
+                " cores");
+        try {
+            return super.solve(oracle, hasMinimize, timeoutMins);
+        } finally {
+            options.solverOpts.randdegree = old_d;
+            options.solverOpts.pTrials = old_trials;
+            plog(name + " win counts: " + getWinCounts());
+            saveWins();
+        }
+    }
+
+    /** the win counts of earlier runs, one file per sketch */
+    protected File getWinsFile() {
+        return new File(options.persistentDir(".portfolio"), options.sketchName + ".wins");
+    }
+
+    protected void loadWins() {
+        File f = getWinsFile();
+        if (!f.isFile()) {
+            return;
+        }
+        Properties p = new Properties();
+        try {
+            InputStream in = new FileInputStream(f);
+            try {
+                p.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log(3, "can't read portfolio win counts from " + f);
+            return;
+        }
+        for (String c : p.stringPropertyNames()) {
+            try {
+                wins.put(c, Integer.parseInt(p.getProperty(c)));
+            } catch (NumberFormatException e) {
+                log(3, "ignoring bad win count for " + c);
+            }
+        }
+    }
+
+    protected void saveWins() {
+        File f = getWinsFile();
+        Properties p = new Properties();
+        for (Map.Entry<String, Integer> e : getWinCounts().entrySet()) {
+            p.setProperty(e.getKey(), "" + e.getValue());
+        }
+        try {
+            f.getParentFile().mkdirs();
+            OutputStream out = new FileOutputStream(f);
+            try {
+                p.store(out, "portfolio win counts for " + options.sketchName);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            log(3, "can't save portfolio win counts to " + f);
+        }
+    }
+
+    /** One solver configuration; a negative bound means the usual value. */
+    public static class Config {
+        public final int degree;
+        public final int cbits;
+        public final int inline;
+        public final boolean randassign;
+
+        public Config(int degree, int cbits, int inline, boolean randassign) {
+            this.degree = degree;
+            this.cbits = cbits;
+            this.inline = inline;
+            this.randassign = randassign;
+        }
+
+        /** parses the deg=N:cbits=N:inline=N:randassign=0|1 syntax of --slv-portfolio */
+        public static Config parse(String spec) {
+            int degree = -1, cbits = -1, inline = -1;
+            boolean randassign = true;
+            for (String part : spec.trim().split(":")) {
+                String[] kv = part.split("=", 2);
+                if (kv.length != 2) {
+                    throw new SketchSolverException("bad portfolio configuration '" +
+                            spec + "'");
+                }
+                String k = kv[0].trim();
+                String v = kv[1].trim();
+                try {
+                    if (k.equals("deg")) {
+                        degree = Integer.parseInt(v);
+                    } else if (k.equals("cbits")) {
+                        cbits = Integer.parseInt(v);
+                    } else if (k.equals("inline")) {
+                        inline = Integer.parseInt(v);
+                    } else if (k.equals("randassign")) {
+                        randassign = !v.equals("0");
+                    } else {
+                        throw new SketchSolverException("unknown key '" + k +
+                                "' in portfolio configuration '" + spec + "'");
+                    }
+                } catch (NumberFormatException e) {
+                    throw new SketchSolverException("bad portfolio configuration '" +
+                            spec + "'", e);
+                }
+            }
+            return new Config(degree, cbits, inline, randassign);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            if (degree >= 0) {
+                sb.append(":deg=").append(degree);
+            }
+            if (cbits > 0) {
+                sb.append(":cbits=").append(cbits);
+            }
+            if (inline > 0) {
+                sb.append(":inline=").append(inline);
+            }
+            if (!randassign) {
+                sb.append(":randassign=0");
+            }
+            return sb.length() == 0 ? "default" : sb.substring(1);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package sketch.compiler.solvers.parallel;
 
 import java.util.List;
+import java.util.Map;
 
 import sketch.compiler.ast.core.TempVarGen;
 import sketch.compiler.dataflow.recursionCtrl.RecursionControl;
 import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.compiler.solvers.DegreePriors;
 import sketch.compiler.solvers.SATSolutionStatistics;
 import sketch.compiler.solvers.constructs.ValueOracle;
 
@@ -30,6 +32,9 @@ public class StrategicalBackend extends ParallelBackend {
                 // proxy = new WilcoxonStrategy(options, rcontrol, varGen);
                 proxy = new AsyncWilcoxonStrategy(options, rcontrol, varGen);
                 break;
+            case PORTFOLIO:
+                proxy = new PortfolioBackend(options, rcontrol, varGen);
+                break;
         }
     }
 
@@ -38,6 +43,7 @@ public class StrategicalBackend extends ParallelBackend {
         // if the strategy requires the whole control, rather than an iterative manner,
         // pass the control to that strategy as a proxy
         if (proxy != null) {
+            lendSolverPool(proxy);
             return proxy.solve(oracle, hasMinimize, timeoutMins);
         }
 
@@ -47,26 +53,48 @@ public class StrategicalBackend extends ParallelBackend {
             stage = STAGE.LEARNING;
             plog(strategy.getName() + " degree searching...");
 
-            // until the strategy has a fixed degree
-            while (strategy.hasNextDegree()) {
-                // ask it what degree to test next
-                int next_d = strategy.nextDegreeToTry();
-                if (next_d < 0) {
-                    plog(strategy.getName() + " tries a strange degree: " + next_d);
-                    break;
+            // start from the timings of earlier runs of the same sketch, if any
+            DegreePriors priors = openDegreePriors();
+            if (priors != null) {
+                for (Map.Entry<Integer, List<SATSolutionStatistics>> e : priors.load()
+                        .entrySet())
+                {
+                    plog(strategy.getName() + " prior: degree " + e.getKey());
+                    strategy.pushInfo(e.getKey(), e.getValue());
                 }
-                // test that degree
-                List<SATSolutionStatistics> results =
-                        runSyncTrials(oracle, hasMinimize, next_d);
-                // check if we're too lucky: found a solution while test runs
-                for (SATSolutionStatistics stat : results) {
-                    if (stat.successful()) {
-                        plog(strategy.getName() + " lucky (degree: " + next_d + ")");
-                        return true;
+            }
+
+            try {
+                // until the strategy has a fixed degree
+                while (strategy.hasNextDegree()) {
+                    // ask it what degree to test next
+                    int next_d = strategy.nextDegreeToTry();
+                    if (next_d < 0) {
+                        plog(strategy.getName() + " tries a strange degree: " + next_d);
+                        break;
                     }
+                    // test that degree
+                    List<SATSolutionStatistics> results =
+                            runSyncTrials(oracle, hasMinimize, next_d);
+                    // check if we're too lucky: found a solution while test runs
+                    for (SATSolutionStatistics stat : results) {
+                        if (stat.successful()) {
+                            plog(strategy.getName() + " lucky (degree: " + next_d + ")");
+                            return true;
+                        }
+                    }
+                    // o.w., feed the results and keep iteration
+                    strategy.pushInfo(next_d, results);
+                    if (priors != null) {
+                        for (SATSolutionStatistics stat : results) {
+                            priors.record(next_d, stat);
+                        }
+                    }
+                }
+            } finally {
+                if (priors != null) {
+                    priors.save();
                 }
-                // o.w., feed the results and keep iteration
-                strategy.pushInfo(next_d, results);
             }
             int d = strategy.getDegree();
             plog(strategy.getName() + " degree choice: " + d);
@@ -2,6 +2,7 @@ package sketch.compiler.solvers.parallel;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,7 @@ import org.apache.commons.math3.stat.inference.WilcoxonSignedRankTest;
 import sketch.compiler.ast.core.TempVarGen;
 import sketch.compiler.dataflow.recursionCtrl.RecursionControl;
 import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.compiler.solvers.DegreePriors;
 import sketch.compiler.solvers.SATSolutionStatistics;
 import sketch.compiler.solvers.constructs.ValueOracle;
 import sketch.util.Pair;
@@ -32,6 +34,8 @@ public class WilcoxonStrategy extends ParallelBackend {
     }
 
     protected WilcoxonSignedRankTest tester;
+    // timings saved by earlier runs; null unless enabled
+    protected DegreePriors priors;
 
     // mappings from degree to a list of elapsed times
     Map<Integer, List<Double>> tMap;
@@ -94,7 +98,8 @@ public class WilcoxonStrategy extends ParallelBackend {
         }
     }
 
-    protected void sample(int degree) throws Lucky {
+    // same contract as IStrategy.pushInfo: add finished trials of the given degree
+    public void pushInfo(int degree, List<SATSolutionStatistics> trials) {
         List<Double> dist_t;
         Mean p;
         if (tMap.containsKey(degree)) {
@@ -106,7 +111,13 @@ public class WilcoxonStrategy extends ParallelBackend {
             p = new Mean();
             pMap.put(degree, p);
         }
+        for (SATSolutionStatistics stat : trials) {
+            dist_t.add((double) stat.elapsedTimeMs());
+            p.increment(stat.probability);
+        }
+    }
 
+    protected void sample(int degree) throws Lucky {
         List<SATSolutionStatistics> stats = runSyncTrials(oracle, hasMinimize, degree);
         StringBuilder buf = new StringBuilder();
         buf.append(name + " degree " + degree + " sample: ");
@@ -114,17 +125,31 @@ public class WilcoxonStrategy extends ParallelBackend {
             if (stat.successful()) {
                 throw new Lucky(name + " lucky (degree: " + degree + ")");
             }
-            long t = stat.elapsedTimeMs();
-            dist_t.add((double) t);
-            p.increment(stat.probability);
-            buf.append("(" + t + ", " + stat.probability + ") ");
+            pushInfo(degree, Collections.singletonList(stat));
+            if (priors != null) {
+                priors.record(degree, stat);
+            }
+            buf.append("(" + stat.elapsedTimeMs() + ", " + stat.probability + ") ");
         }
         buf.append("\n");
         buf.append(name + " degree " + degree + " probability: ");
-        buf.append(p.getResult());
+        buf.append(pMap.containsKey(degree) ? pMap.get(degree).getResult() : Double.NaN);
         plog(buf.toString());
     }
 
+    // start from the timings of earlier runs of the same sketch, if any
+    protected void loadPriors() {
+        priors = openDegreePriors();
+        if (priors == null) {
+            return;
+        }
+        for (Map.Entry<Integer, List<SATSolutionStatistics>> e : priors.load().entrySet()) {
+            plog(name + " prior: degree " + e.getKey() + ", " + e.getValue().size() +
+                    " sample(s)");
+            pushInfo(e.getKey(), e.getValue());
+        }
+    }
+
     int sampleBound = test_trial_max * 3;
     double pValue = 0.05;
 
@@ -243,6 +268,7 @@ public class WilcoxonStrategy extends ParallelBackend {
         int old_ntimes = options.solverOpts.ntimes;
         options.solverOpts.ntimes = 0;
         stage = STAGE.LEARNING;
+        loadPriors();
 
         try {
             Pair<Integer, Integer> range = climb();
@@ -255,6 +281,10 @@ public class WilcoxonStrategy extends ParallelBackend {
         } catch (Lucky e) {
             plog(e.getMessage());
             return true;
+        } finally {
+            if (priors != null) {
+                priors.save();
+            }
         }
 
         onStageChanged();
@@ -38,6 +38,7 @@ public class InteractiveTimedProcess {
 		pb.directory (new File (workDir));
 		startMs = System.currentTimeMillis ();
 		proc = pb.start ();
+		ProcessRegistry.get().register(proc);
 		timeoutMins = timeout;
 	}
 
@@ -51,7 +52,6 @@ public class InteractiveTimedProcess {
 	}
 
 	public void run () throws IOException, InterruptedException {		
-		System.gc();
 		try {
 			if (timeoutMins > 0){
 				killer = new ProcessKillerThread (proc, timeoutMins);
@@ -74,6 +74,7 @@ public class InteractiveTimedProcess {
 			return true;
 		}
 		status.exitCode = proc.exitValue();
+		ProcessRegistry.get().deregister(proc);
 		try {
 			status.err = Misc.readStream (proc.getErrorStream (), true, System.err);
 		}catch(IOException ioe){
@@ -86,6 +87,7 @@ public class InteractiveTimedProcess {
 	public void cleanup(){
 		try {
 		status.exitCode = proc.waitFor ();
+		ProcessRegistry.get().deregister(proc);
 		status.out = Misc.readStream (proc.getInputStream (), true, null);
 		status.err = Misc.readStream (proc.getErrorStream (), true, System.err);		
 		}catch(InterruptedException ie){
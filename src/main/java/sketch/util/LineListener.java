@@ -0,0 +1,13 @@
+package sketch.util;
+
+/**
+ * Gets the output of a process one line at a time, as the lines arrive.
+ */
+public interface LineListener {
+    /**
+     * @param line
+     *            one line of output, without the line terminator
+     * @return true if the process should be stopped right away
+     */
+    public boolean onLine(String line);
+}
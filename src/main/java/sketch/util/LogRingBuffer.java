@@ -0,0 +1,53 @@
+package sketch.util;
+
+/**
+ * Keeps the first and the last lines of a log of unbounded length. The lines in
+ * between are counted but dropped, so memory use doesn't grow with the log.
+ */
+public class LogRingBuffer {
+    protected final String[] head;
+    protected final String[] tail;
+    protected int nHead = 0;
+    /** next slot of tail to overwrite */
+    protected int tailIdx = 0;
+    protected long nLines = 0;
+
+    public LogRingBuffer(int headLines, int tailLines) {
+        head = new String[headLines];
+        tail = new String[Math.max(1, tailLines)];
+    }
+
+    public void add(String line) {
+        nLines++;
+        if (nHead < head.length) {
+            head[nHead++] = line;
+        } else {
+            tail[tailIdx] = line;
+            tailIdx = (tailIdx + 1) % tail.length;
+        }
+    }
+
+    /** @return number of lines seen, including the dropped ones */
+    public long numLines() {
+        return nLines;
+    }
+
+    /** The kept lines, each followed by a newline, with a note where lines were dropped. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nHead; i++) {
+            sb.append(head[i]).append('\n');
+        }
+        long inTail = nLines - nHead;
+        if (inTail > tail.length) {
+            sb.append("[... ").append(inTail - tail.length).append(" lines omitted ...]\n");
+        }
+        int n = (int) Math.min(inTail, tail.length);
+        int start = (tailIdx - n + tail.length) % tail.length;
+        for (int i = 0; i < n; i++) {
+            sb.append(tail[(start + i) % tail.length]).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -51,6 +51,6 @@ public class ProcessKillerThread extends Thread {
         if (aborted) return;
         System.out.println("Time limit exceeded!");
         killed = true;
-        proc.destroy();
+        ProcessRegistry.get().timeOut(proc);
     }
 }
@@ -0,0 +1,116 @@
+package sketch.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps track of the child processes (solvers) the compiler has started. A single
+ * shutdown hook, installed with the first registration, destroys every child that's
+ * still running when the JVM exits. Processes are deregistered once they've exited.
+ * <p>
+ * The registry also counts started, killed and timed-out children.
+ */
+public class ProcessRegistry {
+    protected static final ProcessRegistry instance = new ProcessRegistry();
+
+    protected final Set<Process> live = new LinkedHashSet<Process>();
+    protected boolean hookInstalled = false;
+    protected volatile boolean killedByShutdown = false;
+    protected long started = 0;
+    protected long killed = 0;
+    protected long timedOut = 0;
+
+    public static ProcessRegistry get() {
+        return instance;
+    }
+
+    public synchronized void register(Process p) {
+        if (!hookInstalled) {
+            Runtime.getRuntime().addShutdownHook(new Thread("ProcessRegistry") {
+                @Override
+                public void run() {
+                    destroyAll();
+                }
+            });
+            hookInstalled = true;
+        }
+        if (live.add(p)) {
+            started++;
+        }
+    }
+
+    /** Forgets a process that has exited or whose owner takes care of it. */
+    public synchronized void deregister(Process p) {
+        live.remove(p);
+    }
+
+    /** Destroys a process that's no longer needed, e.g., a sibling of a winning trial. */
+    public void kill(Process p) {
+        synchronized (this) {
+            killed++;
+            live.remove(p);
+        }
+        p.destroy();
+    }
+
+    /** Destroys a process that ran out of time. */
+    public void timeOut(Process p) {
+        synchronized (this) {
+            timedOut++;
+            live.remove(p);
+        }
+        p.destroy();
+    }
+
+    protected void destroyAll() {
+        List<Process> procs;
+        synchronized (this) {
+            procs = new ArrayList<Process>(live);
+            live.clear();
+        }
+        for (Process p : procs) {
+            if (isAlive(p)) {
+                killedByShutdown = true;
+                p.destroy();
+            }
+        }
+    }
+
+    public static boolean isAlive(Process p) {
+        try {
+            p.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    /** @return whether the shutdown hook had to kill a running child, e.g., on ^C */
+    public boolean killedByShutdown() {
+        return killedByShutdown;
+    }
+
+    public synchronized int numLive() {
+        return live.size();
+    }
+
+    public synchronized long numStarted() {
+        return started;
+    }
+
+    public synchronized long numKilled() {
+        return killed;
+    }
+
+    public synchronized long numTimedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "child processes: " + started + " started, " + live.size() + " live, " +
+                killed + " killed, " + timedOut + " timed out";
+    }
+}
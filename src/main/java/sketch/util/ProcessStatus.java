@@ -16,6 +16,8 @@ public class ProcessStatus {
 	public Throwable exception;
 	public String out = "", err = "";
 	public boolean killedByTimeout;
+	/** the process was destroyed because a line listener asked to stop it */
+	public boolean stoppedByListener;
 	public long execTimeMs;		// TODO: find a less unholy place to put this
 	public ProcessStatus () {}
 }
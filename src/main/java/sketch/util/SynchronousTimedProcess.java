@@ -3,14 +3,15 @@
  */
 package sketch.util;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 import sketch.compiler.main.cmdline.SketchOptions;
 
@@ -22,11 +23,13 @@ import sketch.compiler.main.cmdline.SketchOptions;
  * @author Chris Jones
  */
 public class SynchronousTimedProcess {
+    /** lines of each stream kept in the status, unless all output is logged */
+    public static final int LOG_HEAD_LINES = 100;
+    public static final int LOG_TAIL_LINES = 400;
+
     protected final Process proc;
-    protected File tmpFile = null;
     protected float timeoutMins;
     protected long startMs;
-    public static final AtomicBoolean wasKilled = new AtomicBoolean(false);
     protected final List<String> cmdLine;
 
     public SynchronousTimedProcess (float timeoutMins, String... cmdLine)
@@ -52,11 +55,7 @@ public class SynchronousTimedProcess {
         File f_workDir = new File(workDir);
         pb.directory(f_workDir);
         if (options.solverOpts.parallel) {
-            String strategy = options.solverOpts.strategy.toString();
-            File sktmpdir = options.sktmpdir();
-            tmpFile = File.createTempFile(strategy, null, sktmpdir);
-            tmpFile.deleteOnExit();
-            pb.redirectOutput(ProcessBuilder.Redirect.to(tmpFile));
+            // one log per trial, read line by line; no need for a temporary file
             pb.redirectErrorStream(true);
         }
         if (options.solverOpts.ntimes > 1) {
@@ -64,17 +63,7 @@ public class SynchronousTimedProcess {
         }
         startMs = System.currentTimeMillis ();
         proc = pb.start ();
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            @Override
-            public void run() {
-                try {
-                    proc.exitValue();
-                } catch (IllegalThreadStateException e) {
-                    wasKilled.set(true);
-                    proc.destroy();
-                }
-            }
-        });
+        ProcessRegistry.get().register(proc);
         this.timeoutMins = timeoutMins;
     }
 
@@ -98,18 +87,44 @@ public class SynchronousTimedProcess {
     }
 
     public ProcessStatus run(boolean logAllOutput) {
+        return run(logAllOutput, null);
+    }
+
+    /**
+     * Waits for the process while reading its output. Each line of standard output is
+     * handed to the listener, if there is one, as soon as it arrives; when the listener
+     * asks to stop, the process is destroyed. Unless logAllOutput is set, the status
+     * only keeps the first and last lines of each stream.
+     */
+    public ProcessStatus run(boolean logAllOutput, LineListener listener) {
         ProcessKillerThread killer = null;
         ProcessStatus status = new ProcessStatus();
-        System.gc();
+        SketchOptions options = SketchOptions.getSingleton();
+        boolean echo =
+                !logAllOutput && options != null && options.debugOpts.verbosity > 2 &&
+                        !options.solverOpts.parallel;
+        StreamReader err =
+                new StreamReader(proc.getErrorStream(), logAllOutput, System.err, null);
+        StreamReader out =
+                new StreamReader(proc.getInputStream(), logAllOutput,
+                        echo ? System.out : null, listener);
         try {
             if (timeoutMins > 0) {
                 killer = new ProcessKillerThread(proc, timeoutMins);
                 killer.start();
             }
-            if (tmpFile == null) {
-                status.out = Misc.readStream(proc.getInputStream(), logAllOutput, null);
+            // drain stderr on the side, so that neither pipe can fill up and block
+            err.start();
+            out.read();
+            if (out.stopped) {
+                // children of a wrapper script may hold stderr open after destroy()
+                err.join(1000);
+            } else {
+                err.join();
+            }
+            if (err.error != null && !out.stopped) {
+                throw err.error;
             }
-            status.err = Misc.readStream(proc.getErrorStream(), true, System.err);
             // wait for subprocess exit first
             status.exitCode = proc.waitFor();
 
@@ -117,7 +132,7 @@ public class SynchronousTimedProcess {
 
         } catch (InterruptedException e) {
             status.exception = e;
-            proc.destroy();
+            ProcessRegistry.get().kill(proc);
         } catch (IOException e) {
             status.exception = e;
         } finally {
@@ -125,19 +140,83 @@ public class SynchronousTimedProcess {
                 killer.abort();
                 status.killedByTimeout = killer.didKill();
             }
+            if (!ProcessRegistry.isAlive(proc)) {
+                ProcessRegistry.get().deregister(proc);
+            }
             if (status.killedByTimeout) {
                 status.execTimeMs = (long) (timeoutMins * 60 * 1000);
             }
-            try {
-                if (tmpFile != null) {
-                    status.out = Misc.readStream(new FileInputStream(tmpFile), true, null);
+            status.out = out.log();
+            status.err = err.log();
+            status.stoppedByListener = out.stopped;
+        }
+
+        return status;
+    }
+
+    /** Reads one stream of the process line by line. */
+    private class StreamReader extends Thread {
+        final BufferedReader in;
+        final PrintStream altOut;
+        final LineListener listener;
+        final StringBuilder all;
+        final LogRingBuffer ring;
+        volatile boolean stopped = false;
+        IOException error = null;
+
+        StreamReader(InputStream in, boolean keepAll, PrintStream altOut,
+                LineListener listener)
+        {
+            this.in = new BufferedReader(new InputStreamReader(in));
+            this.altOut = altOut;
+            this.listener = listener;
+            if (keepAll) {
+                all = new StringBuilder();
+                ring = null;
+            } else {
+                all = null;
+                ring = new LogRingBuffer(LOG_HEAD_LINES, LOG_TAIL_LINES);
+            }
+            setDaemon(true);
+        }
+
+        void read() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                keep(line);
+                if (altOut != null) {
+                    altOut.println(line);
+                }
+                if (listener != null && listener.onLine(line)) {
+                    // destroy() closes the pipes, so there's nothing more to read
+                    stopped = true;
+                    ProcessRegistry.get().kill(proc);
+                    return;
                 }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                read();
             } catch (IOException e) {
-                status.exception = e;
+                error = e;
             }
         }
 
-        return status;
+        // the log may be read while this thread is still running, e.g., after a timeout
+        synchronized void keep(String line) {
+            if (all != null) {
+                all.append(line).append('\n');
+            } else {
+                ring.add(line);
+            }
+        }
+
+        synchronized String log() {
+            return all != null ? all.toString() : ring.toString();
+        }
     }
 
     public OutputStream getOutputStream() {
@@ -0,0 +1,294 @@
+package sketch.compiler.controlflow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs DataFlow on small hand-built CFGs with branches and loops, forward and backward,
+ * and checks the result against hand-computed sets and against a plain round-robin
+ * iteration to the same fixpoint.
+ */
+public class DataFlowJunitTest extends TestCase {
+    /**
+     * Sets of node names. Meet is intersection for a must analysis, whose top is the
+     * set of everything, and union for a may analysis, whose top is the empty set.
+     */
+    static class SetLattice implements Lattice {
+        final boolean must;
+        /** null for the set of everything */
+        final TreeSet<String> names;
+
+        SetLattice(boolean must, TreeSet<String> names) {
+            this.must = must;
+            this.names = names;
+        }
+
+        public Lattice getTop() {
+            return new SetLattice(must, must ? null : new TreeSet<String>());
+        }
+
+        public Lattice getBottom() {
+            return new SetLattice(must, must ? new TreeSet<String>() : null);
+        }
+
+        public Lattice meet(Lattice other) {
+            SetLattice that = (SetLattice) other;
+            if (names == null) {
+                return must ? that : this;
+            }
+            if (that.names == null) {
+                return must ? this : that;
+            }
+            TreeSet<String> result = new TreeSet<String>(names);
+            if (must) {
+                result.retainAll(that.names);
+            } else {
+                result.addAll(that.names);
+            }
+            return new SetLattice(must, result);
+        }
+
+        SetLattice with(String name) {
+            if (names == null) {
+                return this;
+            }
+            TreeSet<String> result = new TreeSet<String>(names);
+            result.add(name);
+            return new SetLattice(must, result);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SetLattice)) {
+                return false;
+            }
+            SetLattice that = (SetLattice) other;
+            return must == that.must &&
+                    (names == null ? that.names == null : names.equals(that.names));
+        }
+
+        @Override
+        public int hashCode() {
+            return names == null ? 0 : names.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return names == null ? "ALL" : names.toString();
+        }
+    }
+
+    /**
+     * Collects the names of the nodes passed through. As a must analysis going forward
+     * this computes the strict dominators of each node, going backward the strict
+     * postdominators.
+     */
+    static class Collect extends DataFlow {
+        final boolean forward;
+        final boolean must;
+        final Map<CFGNode, String> names;
+        int flowCalls = 0;
+
+        Collect(Graph g, boolean forward, boolean must) {
+            this.forward = forward;
+            this.must = must;
+            this.names = g.names;
+        }
+
+        @Override
+        public Lattice getInit() {
+            return new SetLattice(must, new TreeSet<String>());
+        }
+
+        @Override
+        public Lattice flowFunction(CFGNode node, Lattice in) {
+            ++flowCalls;
+            return ((SetLattice) in).with(names.get(node));
+        }
+
+        @Override
+        public boolean isForward() {
+            return forward;
+        }
+    }
+
+    /** A CFG of placeholder nodes, named for the test. */
+    static class Graph {
+        final Map<String, CFGNode> nodes = new LinkedHashMap<String, CFGNode>();
+        final Map<CFGNode, String> names = new HashMap<CFGNode, String>();
+        final Map<CFGNode, List<CFGNode.EdgePair>> edges =
+                new HashMap<CFGNode, List<CFGNode.EdgePair>>();
+
+        CFGNode node(String name) {
+            CFGNode n = nodes.get(name);
+            if (n == null) {
+                n = new CFGNode(null, true);
+                nodes.put(name, n);
+                names.put(n, name);
+                edges.put(n, new ArrayList<CFGNode.EdgePair>());
+            }
+            return n;
+        }
+
+        Graph edge(String from, String... to) {
+            for (String t : to) {
+                edges.get(node(from)).add(new CFGNode.EdgePair(node(t), null));
+            }
+            return this;
+        }
+
+        CFG cfg() {
+            return new CFG(new ArrayList<CFGNode>(nodes.values()), node("entry"),
+                    node("exit"), edges);
+        }
+    }
+
+    /**
+     * entry -> head -> body -> (br1 | br2) -> latch -> head, and head -> exit.
+     */
+    static Graph loopWithBranch() {
+        return new Graph().edge("entry", "head").edge("head", "body", "exit").edge("body",
+                "br1", "br2").edge("br1", "latch").edge("br2", "latch").edge("latch",
+                "head");
+    }
+
+    /**
+     * Two nested loops whose inner body branches, plus a node nothing reaches that
+     * jumps into the outer loop.
+     */
+    static Graph nestedLoops() {
+        return new Graph().edge("entry", "outer").edge("outer", "inner", "exit").edge(
+                "inner", "a", "olatch").edge("a", "b", "c").edge("b", "ilatch").edge(
+                "c", "ilatch").edge("ilatch", "inner").edge("olatch", "outer").edge(
+                "dead", "inner");
+    }
+
+    static TreeSet<String> set(String... names) {
+        return new TreeSet<String>(Arrays.asList(names));
+    }
+
+    /** The names of the results, with sets of everything left out. */
+    static Map<String, TreeSet<String>> byName(Graph g, Map<CFGNode, Lattice> result) {
+        Map<String, TreeSet<String>> m = new HashMap<String, TreeSet<String>>();
+        for (Map.Entry<CFGNode, Lattice> e : result.entrySet()) {
+            m.put(g.names.get(e.getKey()), ((SetLattice) e.getValue()).names);
+        }
+        return m;
+    }
+
+    /** Round-robin iteration over all the nodes until nothing changes. */
+    static Map<CFGNode, Lattice> reference(CFG cfg, Collect df) {
+        CFGNode start = df.isForward() ? cfg.getEntry() : cfg.getExit();
+        Lattice top = df.getInit().getTop();
+        Map<CFGNode, Lattice> in = new HashMap<CFGNode, Lattice>();
+        for (CFGNode n : cfg.getNodes()) {
+            in.put(n, n == start ? df.getInit() : top);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (CFGNode n : cfg.getNodes()) {
+                if (n == start) {
+                    continue;
+                }
+                Lattice v = top;
+                for (CFGNode p : df.inputs(cfg, n)) {
+                    v = v.meet(df.flowFunction(p, in.get(p)));
+                }
+                if (!v.equals(in.get(n))) {
+                    in.put(n, v);
+                    changed = true;
+                }
+            }
+        }
+        return in;
+    }
+
+    private Map<String, TreeSet<String>> run(Graph g, boolean forward, boolean must) {
+        CFG cfg = g.cfg();
+        Map<CFGNode, Lattice> result = new Collect(g, forward, must).run(cfg);
+        assertEquals(g.nodes.size(), result.size());
+        assertEquals(reference(cfg, new Collect(g, forward, must)), result);
+        return byName(g, result);
+    }
+
+    public void testDominatorsThroughLoop() {
+        Map<String, TreeSet<String>> dom = run(loopWithBranch(), true, true);
+        assertEquals(set(), dom.get("entry"));
+        assertEquals(set("entry"), dom.get("head"));
+        assertEquals(set("entry", "head"), dom.get("body"));
+        assertEquals(set("entry", "head", "body"), dom.get("br1"));
+        assertEquals(set("entry", "head", "body"), dom.get("br2"));
+        assertEquals(set("entry", "head", "body"), dom.get("latch"));
+        assertEquals(set("entry", "head"), dom.get("exit"));
+    }
+
+    public void testPostdominatorsThroughLoop() {
+        Map<String, TreeSet<String>> pdom = run(loopWithBranch(), false, true);
+        assertEquals(set(), pdom.get("exit"));
+        assertEquals(set("exit"), pdom.get("head"));
+        assertEquals(set("exit", "head"), pdom.get("latch"));
+        assertEquals(set("exit", "head", "latch"), pdom.get("br1"));
+        assertEquals(set("exit", "head", "latch"), pdom.get("br2"));
+        assertEquals(set("exit", "head", "latch"), pdom.get("body"));
+        assertEquals(set("exit", "head"), pdom.get("entry"));
+    }
+
+    /** The back edge brings everything in the loop to its head. */
+    public void testMayReachAroundLoop() {
+        Map<String, TreeSet<String>> before = run(loopWithBranch(), true, false);
+        TreeSet<String> loop = set("entry", "head", "body", "br1", "br2", "latch");
+        assertEquals(loop, before.get("head"));
+        assertEquals(loop, before.get("br1"));
+        assertEquals(loop, before.get("exit"));
+
+        Map<String, TreeSet<String>> after = run(loopWithBranch(), false, false);
+        TreeSet<String> loopAndExit = set("exit", "head", "body", "br1", "br2", "latch");
+        assertEquals(loopAndExit, after.get("head"));
+        assertEquals(loopAndExit, after.get("entry"));
+        assertEquals(set(), after.get("exit"));
+    }
+
+    public void testNestedLoops() {
+        Map<String, TreeSet<String>> dom = run(nestedLoops(), true, true);
+        assertEquals(set("entry", "outer"), dom.get("inner"));
+        assertEquals(set("entry", "outer", "inner", "a"), dom.get("ilatch"));
+        assertEquals(set("entry", "outer", "inner"), dom.get("olatch"));
+        assertEquals(set("entry", "outer"), dom.get("exit"));
+        // nothing reaches it, so it is left at top
+        assertNull(dom.get("dead"));
+
+        Map<String, TreeSet<String>> pdom = run(nestedLoops(), false, true);
+        // the inner loop is only left through olatch
+        assertEquals(set("exit", "outer", "olatch", "inner"), pdom.get("ilatch"));
+        assertEquals(set("exit", "outer", "olatch", "inner"), pdom.get("dead"));
+        assertEquals(set("exit", "outer", "olatch", "inner", "ilatch"), pdom.get("b"));
+
+        run(nestedLoops(), true, false);
+        run(nestedLoops(), false, false);
+    }
+
+    /** Without loops, each node's flow function runs once, as its inputs are all done. */
+    public void testDagAppliesEachFlowFunctionOnce() {
+        Graph g =
+                new Graph().edge("entry", "a").edge("a", "c", "b").edge("b", "d").edge(
+                        "c", "d").edge("d", "exit");
+        Collect forward = new Collect(g, true, false);
+        forward.run(g.cfg());
+        // every node but exit feeds another one
+        assertEquals(5, forward.flowCalls);
+        Collect backward = new Collect(g, false, false);
+        Map<String, TreeSet<String>> after = byName(g, backward.run(g.cfg()));
+        assertEquals(5, backward.flowCalls);
+        assertEquals(set("b", "c", "d", "exit"), after.get("a"));
+        assertEquals(Collections.singleton("exit"), after.get("d"));
+    }
+}
@@ -0,0 +1,132 @@
+package sketch.compiler.solvers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+import sketch.compiler.ast.core.TempVarGen;
+import sketch.compiler.cmdline.BoundOptions.IncrementalSchedule;
+import sketch.compiler.main.PlatformLocalization;
+import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.compiler.solvers.constructs.ValueOracle;
+
+/**
+ * Runs the --bnd-incremental search against a fake solver that succeeds for every
+ * width from a threshold up, and writes the width it was given as its solution.
+ */
+public class IncrementalScheduleJunitTest extends TestCase {
+    static class FakeSolverBackend extends SATBackend {
+        final int threshold;
+        final List<Integer> tried = new ArrayList<Integer>();
+
+        FakeSolverBackend(SketchOptions options, int threshold) {
+            super(options, null, new TempVarGen());
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected SATSolutionStatistics tryBitWidth(int bits, float timeoutMins,
+                int fileIdx, int cpus, Vector<String> backendOptions,
+                Map<Integer, Long> times)
+        {
+            tried.add(bits);
+            times.put(bits, 0L);
+            // like cegis, a failed run leaves its own (useless) solution file behind
+            File solution = new File(options.getSolutionsString(fileIdx));
+            try {
+                FileUtils.writeStringToFile(solution, bits >= threshold ? "width " + bits
+                        : "failed " + bits);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            SATSolutionStatistics stat = new SATSolutionStatistics();
+            stat.success = bits >= threshold;
+            return stat;
+        }
+    }
+
+    static class CapRecorder extends ValueOracle {
+        int cap = -1;
+
+        CapRecorder() {
+            super(null);
+        }
+
+        @Override
+        public void capStarSizes(int size) {
+            cap = size;
+        }
+    }
+
+    SketchOptions options;
+
+    @Override
+    protected void setUp() {
+        options = new SketchOptions(new String[] { "incScheduleTest.sk" });
+        options.bndOpts.incremental.setValue(32);
+        PlatformLocalization.getLocalization().setTempDirs();
+    }
+
+    @Override
+    protected void tearDown() {
+        options.cleanTemp();
+        SketchOptions.resetSingleton();
+    }
+
+    private String search(IncrementalSchedule schedule, FakeSolverBackend backend,
+            CapRecorder oracle) throws IOException
+    {
+        options.bndOpts.incSchedule = schedule;
+        SATSolutionStatistics stat =
+                backend.incrementalBitSearch(oracle, 0, 0, 1, new Vector<String>());
+        assertTrue(stat.successful());
+        assertEquals(backend.tried, new ArrayList<Integer>(stat.widthTimesMs.keySet()));
+        return FileUtils.readFileToString(new File(options.getSolutionsString(0)));
+    }
+
+    /** 16 works, then 12 and 10 work, then 9 fails: the solution for 10 must be kept */
+    public void testBinaryKeepsSmallestSolution() throws IOException {
+        FakeSolverBackend backend = new FakeSolverBackend(options, 10);
+        CapRecorder oracle = new CapRecorder();
+        String solution = search(IncrementalSchedule.BINARY, backend, oracle);
+        assertEquals(Arrays.asList(1, 2, 4, 8, 16, 12, 10, 9), backend.tried);
+        assertEquals("width 10", solution);
+        assertEquals(10, oracle.cap);
+        assertFalse(new File(options.getSolutionsString(0) + ".best").exists());
+    }
+
+    public void testBinaryEndingOnSuccess() throws IOException {
+        FakeSolverBackend backend = new FakeSolverBackend(options, 11);
+        CapRecorder oracle = new CapRecorder();
+        String solution = search(IncrementalSchedule.BINARY, backend, oracle);
+        assertEquals(Arrays.asList(1, 2, 4, 8, 16, 12, 10, 11), backend.tried);
+        assertEquals("width 11", solution);
+        assertEquals(11, oracle.cap);
+    }
+
+    public void testDoubling() throws IOException {
+        FakeSolverBackend backend = new FakeSolverBackend(options, 10);
+        CapRecorder oracle = new CapRecorder();
+        String solution = search(IncrementalSchedule.DOUBLING, backend, oracle);
+        assertEquals(Arrays.asList(1, 2, 4, 8, 16), backend.tried);
+        assertEquals("width 16", solution);
+        assertEquals(16, oracle.cap);
+    }
+
+    public void testLinear() throws IOException {
+        FakeSolverBackend backend = new FakeSolverBackend(options, 3);
+        CapRecorder oracle = new CapRecorder();
+        String solution = search(IncrementalSchedule.LINEAR, backend, oracle);
+        assertEquals(Arrays.asList(1, 2, 3), backend.tried);
+        assertEquals("width 3", solution);
+        assertEquals(3, oracle.cap);
+    }
+}
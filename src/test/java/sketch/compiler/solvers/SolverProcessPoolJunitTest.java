@@ -0,0 +1,165 @@
+package sketch.compiler.solvers;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+
+import sketch.compiler.main.PlatformLocalization;
+import sketch.compiler.main.cmdline.SketchOptions;
+import sketch.compiler.solvers.SolverProcessPool.PooledSolver;
+import sketch.util.ProcessStatus;
+
+/**
+ * Runs the pool against a shell script that speaks the -interactive protocol: each
+ * input line is a command, and a job ends with a RESULT line and COMPLETED.
+ */
+public class SolverProcessPoolJunitTest extends TestCase {
+    static final String FAKE_SOLVER =
+            "out=''\n" +
+            "while [ $# -gt 0 ]; do\n" +
+            "  if [ \"$1\" = -o ]; then out=\"$2\"; shift; fi\n" +
+            "  shift\n" +
+            "done\n" +
+            "while read -r line; do\n" +
+            "  case \"$line\" in\n" +
+            "    'exit();') exit 0 ;;\n" +
+            "    sat) echo \"solved by $$\" > \"$out\"; echo 'RESULT = 0'; echo COMPLETED ;;\n" +
+            "    unsat) echo 'RESULT = 1'; echo COMPLETED ;;\n" +
+            "    unknown) echo 'RESULT = 2'; echo COMPLETED ;;\n" +
+            "    hang) exec sleep 60 ;;\n" +
+            "    *) echo \"read $line, which the solver echoes at some length\" ;;\n" +
+            "  esac\n" +
+            "done\n";
+
+    SketchOptions options;
+    File script;
+    SolverProcessPool pool;
+
+    @Override
+    protected void setUp() throws IOException {
+        options = new SketchOptions(new String[] { "poolTest.sk" });
+        PlatformLocalization.getLocalization().setTempDirs();
+        script = new File(options.getTmpFilename("fake-solver.sh"));
+        FileUtils.writeStringToFile(script, FAKE_SOLVER);
+    }
+
+    @Override
+    protected void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        options.cleanTemp();
+        SketchOptions.resetSingleton();
+    }
+
+    String[] commandLine(String... extra) {
+        String[] cmd = new String[extra.length + 5];
+        cmd[0] = "/bin/sh";
+        cmd[1] = script.getPath();
+        System.arraycopy(extra, 0, cmd, 2, extra.length);
+        cmd[extra.length + 2] = "-o";
+        cmd[extra.length + 3] = options.getTmpFilename("ignored-solution");
+        cmd[extra.length + 4] = "input.tmp";
+        return cmd;
+    }
+
+    ProcessStatus run(PooledSolver s, String program, float timeoutMins)
+            throws IOException
+    {
+        File input = new File(options.getTmpFilename("pool-input"));
+        FileUtils.writeStringToFile(input, program);
+        return s.solve(input, options.getTmpFilename("pool-output"), timeoutMins, null);
+    }
+
+    String solution() throws IOException {
+        return FileUtils.readFileToString(new File(options.getTmpFilename("pool-output")));
+    }
+
+    public void testResultCodes() throws IOException {
+        pool = new SolverProcessPool(options, 1, 10);
+        PooledSolver s = pool.acquire(commandLine());
+        assertEquals(0, run(s, "sat\n", 0).exitCode);
+        assertTrue(solution().startsWith("solved by"));
+        assertEquals(1, run(s, "unsat\n", 0).exitCode);
+        assertEquals(2, run(s, "unknown\n", 0).exitCode);
+        ProcessStatus status = run(s, "x\nsat\n", 0);
+        assertEquals(0, status.exitCode);
+        assertTrue(status.out.contains("RESULT = 0"));
+        assertTrue(s.isAlive());
+        assertEquals(4, s.jobs);
+    }
+
+    /** The solver's output fills the pipe long before it has read the whole program. */
+    public void testLargeOutputWhileReading() throws IOException {
+        StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            program.append("node").append(i).append(" = AND a b;\n");
+        }
+        program.append("sat\n");
+        pool = new SolverProcessPool(options, 1, 10);
+        PooledSolver s = pool.acquire(commandLine());
+        ProcessStatus status = run(s, program.toString(), 0.5f);
+        assertFalse(status.killedByTimeout);
+        assertNull(status.exception);
+        assertEquals(0, status.exitCode);
+    }
+
+    public void testReuseAndRecycle() throws IOException {
+        pool = new SolverProcessPool(options, 1, 2);
+        PooledSolver first = pool.acquire(commandLine());
+        run(first, "sat\n", 0);
+        pool.release(first);
+        // same command line apart from the solution file
+        PooledSolver again = pool.acquire(commandLine());
+        assertSame(first, again);
+        run(again, "sat\n", 0);
+        pool.release(again);
+        // two jobs used it up
+        assertFalse(first.isAlive());
+        PooledSolver fresh = pool.acquire(commandLine());
+        assertNotSame(first, fresh);
+        assertEquals(0, run(fresh, "sat\n", 0).exitCode);
+        pool.release(fresh);
+        assertEquals(1, pool.numLive());
+    }
+
+    public void testOtherCommandLineTakesTheSlot() throws IOException {
+        pool = new SolverProcessPool(options, 1, 10);
+        PooledSolver a = pool.acquire(commandLine("--bnd", "5"));
+        pool.release(a);
+        PooledSolver b = pool.acquire(commandLine("--bnd", "6"));
+        assertNotSame(a, b);
+        assertFalse(a.isAlive());
+        assertEquals(1, pool.numLive());
+        pool.release(b);
+    }
+
+    public void testTimeoutReplacesProcess() throws IOException {
+        pool = new SolverProcessPool(options, 1, 10);
+        PooledSolver s = pool.acquire(commandLine());
+        ProcessStatus status = run(s, "hang\n", 0.02f);
+        assertTrue(status.killedByTimeout);
+        pool.release(s);
+        assertEquals(0, pool.numLive());
+        PooledSolver fresh = pool.acquire(commandLine());
+        assertNotSame(s, fresh);
+        assertEquals(0, run(fresh, "sat\n", 0).exitCode);
+        pool.release(fresh);
+    }
+
+    public void testSeedOnlyMattersWhenFixed() throws IOException {
+        pool = new SolverProcessPool(options, 2, 10);
+        assertEquals(pool.keyOf(commandLine("--seed", "1")),
+                pool.keyOf(commandLine("--seed", "2")));
+        options.solverOpts.seed = 7;
+        assertFalse(pool.keyOf(commandLine("--seed", "7")).equals(
+                pool.keyOf(commandLine("--seed", "8"))));
+        PooledSolver seven = pool.acquire(commandLine("--seed", "7"));
+        pool.release(seven);
+        assertNotSame(seven, pool.acquire(commandLine("--seed", "8")));
+        assertSame(seven, pool.acquire(commandLine("--seed", "7")));
+    }
+}